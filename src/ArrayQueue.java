@@ -0,0 +1,187 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/*
+    A queue stored in a circular array. head is the index of the first element, and the elements wrap around the end
+    of the array back to index 0. add(), poll() and peek() are O(1) (add is amortized...the array doubles when it
+    fills up), no node is allocated per element, and the elements sit next to each other in memory.
+
+    The array length is always a power of two, so wrapping an index around is a mask instead of a modulo.
+    null elements aren't allowed, since poll() and peek() return null to mean the queue is empty.
+ */
+
+public class ArrayQueue<T> implements Queue<T>, Iterable<T> {
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private Object[] elements;
+    private int head;
+    private int size;
+
+    public ArrayQueue(){
+        this(16);
+    }
+
+    public ArrayQueue(int initialCapacity){
+        if(initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+
+        elements = new Object[OpenHashMap.tableSizeFor(initialCapacity)];
+        head = 0;
+        size = 0;
+    }
+
+    //appends the element to the back of the queue
+    @Override
+    public void add(T data){
+        if(data == null)
+            throw new NullPointerException();
+        if(size == elements.length)
+            grow();
+
+        elements[(head + size) & (elements.length - 1)] = data;
+        size++;
+    }
+
+    //only the occupied slots are cleared, so this is O(size) rather than O(capacity)
+    @Override
+    public void clear(){
+        int mask = elements.length - 1;
+        for(int i=0; i<size; i++)
+            elements[(head + i) & mask] = null;
+
+        head = 0;
+        size = 0;
+    }
+
+    @Override
+    public boolean contains(T element){
+        return indexOf(element) != -1;
+    }
+
+    //same as peek, except an empty queue throws an exception
+    @Override
+    public T element(){
+        if(size == 0)
+            throw new NoSuchElementException();
+        return peek();
+    }
+
+    @Override
+    public boolean isEmpty(){ return size == 0; }
+
+    //returns but does not remove the first element, or null if the queue is empty
+    @Override
+    @SuppressWarnings("unchecked")
+    public T peek(){
+        return (T) elements[head];          //the slot at head is null when the queue is empty
+    }
+
+    //returns but does not remove the last element, or null if the queue is empty
+    @SuppressWarnings("unchecked")
+    public T peekLast(){
+        return (T) elements[(head + size - 1) & (elements.length - 1)];
+    }
+
+    //removes and returns the first element, or null if the queue is empty
+    @Override
+    @SuppressWarnings("unchecked")
+    public T poll(){
+        if(size == 0)
+            return null;
+
+        T toReturn = (T) elements[head];
+        elements[head] = null;          //don't hold on to the element after it has left the queue
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        return toReturn;
+    }
+
+    //same as poll, except an empty queue throws an exception
+    @Override
+    public T remove(){
+        if(size == 0)
+            throw new NoSuchElementException();
+        return poll();
+    }
+
+    //removes the first occurrence of the element...the elements behind it shift forward one slot
+    @Override
+    public boolean remove(T element){
+        int i = indexOf(element);
+        if(i == -1)
+            return false;
+
+        int mask = elements.length - 1;
+        for(; i < size - 1; i++)
+            elements[(head + i) & mask] = elements[(head + i + 1) & mask];
+
+        elements[(head + size - 1) & mask] = null;
+        size--;
+        return true;
+    }
+
+    @Override
+    public int size(){ return size; }
+
+    @Override
+    public Iterator<T> iterator(){
+        return new ArrayQueueIterator();
+    }
+
+    //walks the queue from front to back without copying it
+    private class ArrayQueueIterator implements Iterator<T> {
+        private int index = 0;          //position relative to head
+
+        @Override
+        public boolean hasNext() {
+            return index < size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if(!hasNext())
+                throw new NoSuchElementException();
+            return (T) elements[(head + index++) & (elements.length - 1)];
+        }
+    }
+
+    @Override
+    public String toString(){
+        if(size == 0)
+            return "[]";
+
+        StringBuilder toReturn = new StringBuilder("[");
+        for(T element : this)
+            toReturn.append(element).append(", ");
+
+        toReturn.setLength(toReturn.length() - 2);
+        return toReturn.append("]").toString();
+    }
+
+    //position of the element relative to head, or -1 if it isn't in the queue
+    private int indexOf(T element){
+        int mask = elements.length - 1;
+        for(int i=0; i<size; i++){
+            if(elements[(head + i) & mask].equals(element))
+                return i;
+        }
+        return -1;
+    }
+
+    //doubles the array, unwrapping the elements so the first one ends up at index 0
+    private void grow(){
+        if(elements.length == MAX_CAPACITY)
+            throw new IllegalStateException("Queue is full");
+
+        Object[] bigger = new Object[elements.length << 1];
+        int firstPart = elements.length - head;         //head up to the end of the old array
+
+        System.arraycopy(elements, head, bigger, 0, firstPart);
+        System.arraycopy(elements, 0, bigger, firstPart, head);
+
+        elements = bigger;
+        head = 0;
+    }
+}
@@ -145,17 +145,18 @@ public class BinarySearchTree<T extends Comparable<T>> {
         if(node == null)
             return toReturn;
 
-        Queue<TreeNode<T>> queue = new LinkedList<>();
+        Queue<TreeNode<T>> queue = new ArrayQueue<>();
         queue.add(node);
 
         while(queue.size() != 0){
             TreeNode<T> temp = queue.remove();
-            if(temp != null){
-                toReturn.add(temp.getData());
+            toReturn.add(temp.getData());
 
+            //empty children are skipped rather than queued...the queue doesn't take nulls
+            if(temp.getLeft() != null)
                 queue.add(temp.getLeft());
+            if(temp.getRight() != null)
                 queue.add(temp.getRight());
-            }
         }
 
         return toReturn;
@@ -0,0 +1,24 @@
+import java.util.concurrent.TimeUnit;
+
+//a Queue that can be shared between threads, and whose producers and consumers can wait for space or for elements
+//instead of spinning on offer()/poll()...every method is thread-safe
+public interface BlockingQueue<T> extends Queue<T> {
+
+    //adds the element if there's room right now...returns false if the queue is full
+    boolean offer(T data);
+
+    //waits up to the timeout for room to add the element...returns false if the time ran out
+    boolean offer(T data, long timeout, TimeUnit unit) throws InterruptedException;
+
+    //waits as long as it takes for room to add the element
+    void put(T data) throws InterruptedException;
+
+    //waits up to the timeout for an element...returns null if the time ran out
+    T poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+    //waits as long as it takes for an element
+    T take() throws InterruptedException;
+
+    //the number of elements that can still be added without waiting, or Integer.MAX_VALUE if the queue is unbounded
+    int remainingCapacity();
+}
@@ -0,0 +1,610 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/*
+    A thread-safe version of the HashMap. The table is a power-of-two array of singly linked bins.
+
+    - Reads never lock. Node links and values are volatile, so get() just walks the bin it hashes to.
+    - Inserting into an empty bin is a single compareAndSet on the table slot.
+    - Every other write locks only the first node of its bin, so threads working on different bins don't contend.
+    - Resizing is cooperative. The thread that starts a resize allocates the next table, and the old table is handed
+      out in stripes of TRANSFER_STRIDE bins. Any thread that runs into a bin being moved joins in and claims
+      stripes of its own. A moved bin is replaced with a ForwardingNode that points readers and writers to the new table.
+    - compute() and the other function-taking methods are atomic per key. The function runs while the key's bin is
+      locked (an empty bin is first claimed with a ReservationNode), so it must be short and must not touch the map.
+
+    Keys and values can't be null, since a null from get() has to mean the key is absent.
+ */
+
+public class ConcurrentHashMap<K, V> implements Map<K, V> {
+
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final int TRANSFER_STRIDE = 16;      //number of bins a resizing thread claims at a time
+    private static final int MOVED = -1;                //hash of a ForwardingNode...real hashes are never negative
+    private static final int RESERVED = -2;             //hash of a ReservationNode
+
+    static class Node<K, V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        volatile Node<K, V> next;
+
+        Node(int hash, K key, V value, Node<K, V> next){
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    //left in a bin of the old table once that bin has been copied over...anyone who finds it continues in nextTable
+    static class ForwardingNode<K, V> extends Node<K, V> {
+        final AtomicReferenceArray<Node<K, V>> nextTable;
+
+        ForwardingNode(AtomicReferenceArray<Node<K, V>> nextTable){
+            super(MOVED, null, null, null);
+            this.nextTable = nextTable;
+        }
+    }
+
+    //holds an empty bin while compute() runs its function for a key that would go there...anyone else who wants the
+    //bin blocks on its lock until the function is done
+    static class ReservationNode<K, V> extends Node<K, V> {
+        ReservationNode(){
+            super(RESERVED, null, null, null);
+        }
+    }
+
+    private volatile AtomicReferenceArray<Node<K, V>> table;
+    private volatile AtomicReferenceArray<Node<K, V>> nextTable;    //only non-null while a resize is in progress
+
+    //when positive, the entry count that triggers the next resize
+    //when -1, the last resizing thread is publishing the new table
+    //when below -1, a resize is running with -(sizeCtl + 1) threads taking part
+    private final AtomicInteger sizeCtl;
+    private final AtomicInteger transferIndex;      //bins below this index of the old table haven't been claimed yet
+    private final LongAdder count;
+
+    public ConcurrentHashMap(){
+        this(16);
+    }
+
+    public ConcurrentHashMap(int initialCapacity){
+        if(initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+
+        int capacity = OpenHashMap.tableSizeFor(initialCapacity);
+        table = new AtomicReferenceArray<>(capacity);
+        sizeCtl = new AtomicInteger(thresholdFor(capacity));
+        transferIndex = new AtomicInteger(0);
+        count = new LongAdder();
+    }
+
+    @Override
+    public V put(K key, V value){
+        if(key == null || value == null)
+            throw new NullPointerException();
+
+        int hash = spread(key.hashCode());
+        AtomicReferenceArray<Node<K, V>> tab = table;
+
+        while(true){
+            int i = hash & (tab.length() - 1);
+            Node<K, V> first = tab.get(i);
+
+            if(first == null){
+                if(tab.compareAndSet(i, null, new Node<>(hash, key, value, null)))      //empty bin...no lock needed
+                    break;
+            }
+            else if(first.hash == MOVED){       //this bin already moved...lend a hand, then carry on in the new table
+                helpTransfer();
+                tab = ((ForwardingNode<K, V>) first).nextTable;
+            }
+            else {
+                synchronized(first){
+                    if(tab.get(i) == first){        //the bin could have been changed before we got the lock
+                        Node<K, V> e = first;
+                        while(true){
+                            if(e.hash == hash && key.equals(e.key)){
+                                V toReturn = e.value;
+                                e.value = value;
+                                return toReturn;
+                            }
+                            if(e.next == null){
+                                e.next = new Node<>(hash, key, value, null);
+                                break;
+                            }
+                            e = e.next;
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        count.increment();
+        tryResize();
+        return null;
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue){
+        Node<K, V> e = findNode(key);
+        return e == null ? defaultValue : e.value;
+    }
+
+    //the three methods below check for the key without locking first, and only fall back to compute() when they
+    //might actually have to change something
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction){
+        if(mappingFunction == null)
+            throw new NullPointerException();
+
+        Node<K, V> e = findNode(key);
+        if(e != null)
+            return e.value;
+
+        return compute(key, (k, oldValue) -> oldValue != null ? oldValue : mappingFunction.apply(k));
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction){
+        if(remappingFunction == null)
+            throw new NullPointerException();
+        if(findNode(key) == null)
+            return null;
+
+        return compute(key, (k, oldValue) -> oldValue == null ? null : remappingFunction.apply(k, oldValue));
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction){
+        if(value == null || remappingFunction == null)
+            throw new NullPointerException();
+
+        return compute(key, (k, oldValue) -> oldValue == null ? value : remappingFunction.apply(oldValue, value));
+    }
+
+    //the function sees the current value (null if absent) and its result replaces it...null removes the key
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction){
+        if(key == null || remappingFunction == null)
+            throw new NullPointerException();
+
+        int hash = spread(key.hashCode());
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        V value;
+        int delta = 0;          //+1 if a node was added, -1 if one was removed
+
+        while(true){
+            int i = hash & (tab.length() - 1);
+            Node<K, V> first = tab.get(i);
+
+            if(first == null){
+                //empty bin...reserve it first, so no other thread can insert the key while the function runs
+                Node<K, V> reservation = new ReservationNode<>();
+                synchronized(reservation){
+                    if(tab.compareAndSet(i, null, reservation)){
+                        Node<K, V> node = null;
+                        try {
+                            value = remappingFunction.apply(key, null);
+                            if(value != null){
+                                node = new Node<>(hash, key, value, null);
+                                delta = 1;
+                            }
+                        } finally {
+                            tab.set(i, node);
+                        }
+                        break;
+                    }
+                }
+            }
+            else if(first.hash == MOVED){
+                helpTransfer();
+                tab = ((ForwardingNode<K, V>) first).nextTable;
+            }
+            else {
+                synchronized(first){
+                    if(tab.get(i) != first)
+                        continue;
+                    if(first.hash == RESERVED)      //we hold its lock, so the reservation is ours...the function called back into the map
+                        throw new IllegalStateException("Recursive update");
+
+                    Node<K, V> parent = null;
+                    Node<K, V> e = first;
+                    while(e != null && !(e.hash == hash && key.equals(e.key))){
+                        parent = e;
+                        e = e.next;
+                    }
+
+                    value = remappingFunction.apply(key, e == null ? null : e.value);
+
+                    if(e == null){
+                        if(value != null){
+                            parent.next = new Node<>(hash, key, value, null);
+                            delta = 1;
+                        }
+                    }
+                    else if(value != null)
+                        e.value = value;
+                    else {
+                        if(parent == null)
+                            tab.set(i, e.next);
+                        else
+                            parent.next = e.next;
+                        delta = -1;
+                    }
+                    break;
+                }
+            }
+        }
+
+        if(delta > 0){
+            count.increment();
+            tryResize();
+        }
+        else if(delta < 0)
+            count.decrement();
+
+        return value;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        if(m != null){
+            for(Map.Entry<? extends K, ? extends V> entry : m.entrySet()){
+                put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+        Node<K, V> e = findNode(key);
+        return e == null ? null : e.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return findNode(key) != null;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        if(value == null)
+            throw new NullPointerException();
+
+        for(Node<K, V> e : snapshot()){
+            if(value.equals(e.value))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public V remove(Object key){
+        if(key == null)
+            throw new NullPointerException();
+
+        int hash = spread(key.hashCode());
+        AtomicReferenceArray<Node<K, V>> tab = table;
+
+        while(true){
+            int i = hash & (tab.length() - 1);
+            Node<K, V> first = tab.get(i);
+
+            if(first == null)
+                return null;
+
+            if(first.hash == MOVED){
+                helpTransfer();
+                tab = ((ForwardingNode<K, V>) first).nextTable;
+                continue;
+            }
+
+            synchronized(first){
+                if(tab.get(i) != first)
+                    continue;
+
+                Node<K, V> parent = null;
+                for(Node<K, V> e = first; e != null; parent = e, e = e.next){
+                    if(e.hash == hash && key.equals(e.key)){
+                        if(parent == null)
+                            tab.set(i, e.next);
+                        else
+                            parent.next = e.next;
+
+                        count.decrement();
+                        return e.value;
+                    }
+                }
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        int i = 0;
+
+        while(i < tab.length()){
+            Node<K, V> first = tab.get(i);
+
+            if(first == null)
+                i++;
+            else if(first.hash == MOVED){       //finish the resize and start over on the new table
+                helpTransfer();
+                tab = table;
+                i = 0;
+            }
+            else {
+                synchronized(first){
+                    if(tab.get(i) == first){
+                        int removed = 0;
+                        for(Node<K, V> e = first; e != null; e = e.next)
+                            removed++;
+
+                        tab.set(i, null);
+                        count.add(-removed);
+                        i++;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public int size(){
+        long n = count.sum();
+        return n < 0 ? 0 : (n > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) n);
+    }
+
+    @Override
+    public boolean isEmpty() { return count.sum() <= 0; }
+
+    //the three views below are copies taken while other threads may still be writing, so they reflect
+    //each bin at the moment it was read rather than the whole map at a single instant
+
+    @Override
+    public Set<K> keySet() {
+        Set<K> keys = new HashSet<>();
+        for(Node<K, V> e : snapshot())
+            keys.add(e.key);
+        return keys;
+    }
+
+    @Override
+    public Collection<V> values() {
+        Collection<V> values = new ArrayList<>();
+        for(Node<K, V> e : snapshot())
+            values.add(e.value);
+        return values;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        Set<Map.Entry<K, V>> entrySet = new HashSet<>();
+        for(Node<K, V> e : snapshot())
+            entrySet.add(new MapEntry(e.key, e.value));
+        return entrySet;
+    }
+
+    @Override
+    public String toString(){
+        ArrayList<Node<K, V>> nodes = snapshot();
+        if(nodes.isEmpty())
+            return "{}";
+
+        StringBuilder toReturn = new StringBuilder("{");
+        for(Node<K, V> e : nodes)
+            toReturn.append(e.key).append("=").append(e.value).append(", ");
+
+        toReturn.setLength(toReturn.length() - 2);
+        return toReturn.append("}").toString();
+    }
+
+    //an entry handed out by entrySet()...setValue writes back through to the map
+    private class MapEntry implements Map.Entry<K, V> {
+        private final K key;
+        private V value;
+
+        MapEntry(K key, V value){
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() { return key; }
+
+        @Override
+        public V getValue() { return value; }
+
+        @Override
+        public V setValue(V value) {
+            this.value = value;
+            return put(key, value);
+        }
+
+        public String toString(){
+            return key + "=" + value;
+        }
+    }
+
+    //lock-free lookup...forwarding nodes are followed into the newer table
+    private Node<K, V> findNode(Object key){
+        if(key == null)
+            throw new NullPointerException();
+
+        int hash = spread(key.hashCode());
+        AtomicReferenceArray<Node<K, V>> tab = table;
+
+        while(true){
+            Node<K, V> e = tab.get(hash & (tab.length() - 1));
+            if(e == null)
+                return null;
+
+            if(e.hash == MOVED){
+                tab = ((ForwardingNode<K, V>) e).nextTable;
+                continue;
+            }
+
+            for(; e != null; e = e.next){
+                if(e.hash == hash && key.equals(e.key))
+                    return e;
+            }
+            return null;
+        }
+    }
+
+    //collects every node reachable from the current table without taking any locks
+    private ArrayList<Node<K, V>> snapshot(){
+        ArrayList<Node<K, V>> nodes = new ArrayList<>();
+        AtomicReferenceArray<Node<K, V>> tab = table;
+
+        for(int i=0; i<tab.length(); i++)
+            collectBin(tab, i, nodes);
+
+        return nodes;
+    }
+
+    //a moved bin i of a table of size n lives at i and i+n of the next table
+    private void collectBin(AtomicReferenceArray<Node<K, V>> tab, int i, ArrayList<Node<K, V>> nodes){
+        Node<K, V> e = tab.get(i);
+
+        if(e != null && e.hash == MOVED){
+            AtomicReferenceArray<Node<K, V>> next = ((ForwardingNode<K, V>) e).nextTable;
+            collectBin(next, i, nodes);
+            collectBin(next, i + tab.length(), nodes);
+            return;
+        }
+        if(e != null && e.hash == RESERVED)      //a compute() still running on an empty bin...nothing in it yet
+            return;
+
+        for(; e != null; e = e.next)
+            nodes.add(e);
+    }
+
+    //starts a resize if the map has grown past its threshold, or joins one that's already running
+    private void tryResize(){
+        int sc = sizeCtl.get();
+
+        if(sc > 0){
+            if(count.sum() < sc || table.length() >= MAX_CAPACITY)
+                return;
+
+            if(sizeCtl.compareAndSet(sc, -2)){        //we're the thread starting this resize
+                int n = table.length();
+                transferIndex.set(n);           //set before nextTable, so a helper that sees nextTable also sees the stripes
+                nextTable = new AtomicReferenceArray<>(n << 1);
+                transferAndLeave();
+            }
+        }
+        else if(sc < -1)
+            helpTransfer();
+    }
+
+    //joins the running resize, but only while there are still stripes to claim...otherwise the thread would just
+    //bounce in and out and could keep the count of resizing threads from ever reaching zero
+    private void helpTransfer(){
+        int sc = sizeCtl.get();
+
+        while(sc < -1 && transferIndex.get() > 0){
+            if(sizeCtl.compareAndSet(sc, sc - 1)){
+                transferAndLeave();
+                return;
+            }
+            sc = sizeCtl.get();
+        }
+
+        if(sc < 0)          //the last stripes are being finished or the new table published...give those threads a moment
+            Thread.yield();
+    }
+
+    //copies stripes until none are left, then leaves the resize...the last thread out publishes the new table
+    private void transferAndLeave(){
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        AtomicReferenceArray<Node<K, V>> nextTab = nextTable;
+
+        if(nextTab != null)     //null when we joined before the starting thread finished allocating
+            transfer(tab, nextTab);
+
+        int sc;
+        do {
+            sc = sizeCtl.get();
+        } while(!sizeCtl.compareAndSet(sc, sc + 1));
+
+        if(sc + 1 == -1){
+            //every stripe was claimed and every thread that claimed one has finished it
+            AtomicReferenceArray<Node<K, V>> finished = nextTable;
+            table = finished;
+            nextTable = null;
+            sizeCtl.set(thresholdFor(finished.length()));
+        }
+    }
+
+    private void transfer(AtomicReferenceArray<Node<K, V>> tab, AtomicReferenceArray<Node<K, V>> nextTab){
+        int n = tab.length();
+        ForwardingNode<K, V> forward = new ForwardingNode<>(nextTab);
+
+        while(true){
+            int hi = transferIndex.get();
+            if(hi <= 0)
+                return;
+
+            int lo = Math.max(0, hi - TRANSFER_STRIDE);
+            if(!transferIndex.compareAndSet(hi, lo))
+                continue;
+
+            for(int i = hi - 1; i >= lo; i--){
+                boolean moved = false;
+
+                while(!moved){
+                    Node<K, V> first = tab.get(i);
+
+                    if(first == null)
+                        moved = tab.compareAndSet(i, null, forward);
+                    else {
+                        synchronized(first){
+                            if(tab.get(i) == first){
+                                //split the bin in two...the hash bit for n decides whether a node stays at i or moves to i+n
+                                //the old nodes are copied rather than relinked so readers still walking them aren't disturbed
+                                Node<K, V> low = null;
+                                Node<K, V> high = null;
+
+                                for(Node<K, V> e = first; e != null; e = e.next){
+                                    if((e.hash & n) == 0)
+                                        low = new Node<>(e.hash, e.key, e.value, low);
+                                    else
+                                        high = new Node<>(e.hash, e.key, e.value, high);
+                                }
+
+                                nextTab.set(i, low);
+                                nextTab.set(i + n, high);
+                                tab.set(i, forward);
+                                moved = true;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static int thresholdFor(int capacity){
+        return capacity - (capacity >>> 2);     //a load factor of 0.75
+    }
+
+    //same spreading as OpenHashMap, with the sign bit cleared so no real hash can equal MOVED
+    private static int spread(int h){
+        return OpenHashMap.spread(h) & 0x7FFFFFFF;
+    }
+}
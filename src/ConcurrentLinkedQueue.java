@@ -0,0 +1,246 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/*
+    An unbounded, lock-free queue shared by any number of producers and consumers (the Michael-Scott queue).
+
+    - The list always starts with a dummy node. head points at the dummy, and the first element lives in the node after it.
+    - add() links its node after the last node with a compareAndSet on that node's next pointer, then swings tail forward.
+      tail may lag one node behind...any thread that notices finishes the swing for it before doing its own work.
+    - poll() moves head forward with a compareAndSet, and the node holding the element it took becomes the new dummy.
+    - remove(T) clears the element out of its node with a compareAndSet, and poll() skips over such empty nodes.
+
+    take() and the timed poll() park on a QueueWaiters when the queue is empty. Adding never blocks, since the queue has no bound.
+    Elements can't be null.
+ */
+
+public class ConcurrentLinkedQueue<T> implements BlockingQueue<T>, Iterable<T> {
+
+    private static class Node<T> {
+        volatile T item;
+        volatile Node<T> next;
+
+        Node(T item){
+            this.item = item;
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Node, Node> NEXT =
+            AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Node, Object> ITEM =
+            AtomicReferenceFieldUpdater.newUpdater(Node.class, Object.class, "item");
+
+    private final AtomicReference<Node<T>> head;
+    private final AtomicReference<Node<T>> tail;
+    private final QueueWaiters notEmpty = new QueueWaiters();
+
+    public ConcurrentLinkedQueue(){
+        Node<T> dummy = new Node<>(null);
+        head = new AtomicReference<>(dummy);
+        tail = new AtomicReference<>(dummy);
+    }
+
+    @Override
+    public void add(T data){
+        offer(data);
+    }
+
+    //always succeeds, since the queue is unbounded
+    @Override
+    public boolean offer(T data){
+        if(data == null)
+            throw new NullPointerException();
+
+        Node<T> node = new Node<>(data);
+        while(true){
+            Node<T> last = tail.get();
+            Node<T> next = last.next;
+
+            if(last != tail.get())          //tail moved while we were reading it
+                continue;
+
+            if(next == null){
+                if(NEXT.compareAndSet(last, null, node)){
+                    tail.compareAndSet(last, node);         //fine if this fails...someone else already swung it
+                    break;
+                }
+            }
+            else
+                tail.compareAndSet(last, next);     //tail is lagging behind...help it along, then retry
+        }
+
+        notEmpty.signal();
+        return true;
+    }
+
+    @Override
+    public boolean offer(T data, long timeout, TimeUnit unit){
+        return offer(data);
+    }
+
+    @Override
+    public void put(T data){
+        offer(data);
+    }
+
+    //removes and returns the first element, or null if the queue is empty
+    @Override
+    @SuppressWarnings("unchecked")
+    public T poll(){
+        while(true){
+            Node<T> first = head.get();
+            Node<T> last = tail.get();
+            Node<T> next = first.next;
+
+            if(first != head.get())
+                continue;
+
+            if(first == last){
+                if(next == null)
+                    return null;
+                tail.compareAndSet(last, next);         //tail is lagging behind the node we're about to take
+            }
+            else if(head.compareAndSet(first, next)){
+                //next is the new dummy...take its element unless remove(T) got there first
+                T item = next.item;
+                if(item != null && ITEM.compareAndSet(next, item, null))
+                    return item;
+            }
+        }
+    }
+
+    @Override
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return notEmpty.await(this::poll, Math.max(0, unit.toNanos(timeout)));
+    }
+
+    @Override
+    public T take() throws InterruptedException {
+        return notEmpty.await(this::poll, -1);
+    }
+
+    //same as poll, except an empty queue throws an exception
+    @Override
+    public T remove(){
+        T toReturn = poll();
+        if(toReturn == null)
+            throw new NoSuchElementException();
+        return toReturn;
+    }
+
+    //removes the first occurrence of the element...the node stays linked until a poll() passes over it
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(T element){
+        if(element == null)
+            return false;
+
+        for(Node<T> node = head.get().next; node != null; node = node.next){
+            T item = node.item;
+            if(item != null && element.equals(item) && ITEM.compareAndSet(node, item, null))
+                return true;
+        }
+        return false;
+    }
+
+    //returns but does not remove the first element, or null if the queue is empty
+    @Override
+    public T peek(){
+        for(Node<T> node = head.get().next; node != null; node = node.next){
+            T item = node.item;
+            if(item != null)
+                return item;
+        }
+        return null;
+    }
+
+    //same as peek, except an empty queue throws an exception
+    @Override
+    public T element(){
+        T toReturn = peek();
+        if(toReturn == null)
+            throw new NoSuchElementException();
+        return toReturn;
+    }
+
+    @Override
+    public void clear(){
+        while(poll() != null);
+    }
+
+    @Override
+    public boolean contains(T element){
+        if(element == null)
+            return false;
+
+        for(T item : this){
+            if(element.equals(item))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isEmpty(){ return peek() == null; }
+
+    //counts the elements one by one, so it's O(n)...and only a snapshot while other threads are adding or removing
+    @Override
+    public int size(){
+        int count = 0;
+        for(Node<T> node = head.get().next; node != null; node = node.next){
+            if(node.item != null && ++count == Integer.MAX_VALUE)
+                break;
+        }
+        return count;
+    }
+
+    @Override
+    public int remainingCapacity(){ return Integer.MAX_VALUE; }
+
+    //walks the nodes as they are linked at the time...elements added or removed while it runs may or may not be seen
+    @Override
+    public Iterator<T> iterator(){
+        return new Iterator<T>() {
+            private Node<T> node = head.get();
+            private T next = advance();
+
+            private T advance(){
+                for(node = node.next; node != null; node = node.next){
+                    T item = node.item;
+                    if(item != null)
+                        return item;
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() { return next != null; }
+
+            @Override
+            public T next() {
+                if(next == null)
+                    throw new NoSuchElementException();
+
+                T toReturn = next;
+                next = advance();
+                return toReturn;
+            }
+        };
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder toReturn = new StringBuilder("[");
+        for(T item : this)
+            toReturn.append(item).append(", ");
+
+        if(toReturn.length() > 1)
+            toReturn.setLength(toReturn.length() - 2);
+        return toReturn.append("]").toString();
+    }
+}
@@ -0,0 +1,340 @@
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+
+/*
+    An unbounded, lock-free priority queue shared by any number of producers and consumers, kept in a skip list
+    (the lock-free SkipQueue from Herlihy and Shavit's "The Art of Multiprocessor Programming").
+
+    - The elements sit in a sorted linked list, and every node also joins a random number of express lanes above it
+      (half as many nodes on each lane going up), so a search skips over most of the list in O(log n) steps.
+    - Every next pointer carries a mark bit (AtomicMarkableReference). A node is unlinked by marking its own next
+      pointers from the top lane down, which stops anybody from linking after it, then any search that passes a
+      marked node snips it out with a compareAndSet on its predecessor.
+    - poll() walks the bottom lane from the front and claims the first node whose taken flag it can flip with a
+      compareAndSet. Only one thread can claim a node, so every element is handed out exactly once, and the node
+      is then unlinked like above.
+
+    Equal elements are kept in the order they were added: ties are broken by a sequence number taken on add, which
+    also makes every node's key unique. poll() returns the smallest element that was fully added before it started
+    (an element added while a poll() is running may or may not be seen by it).
+
+    take() and the timed poll() park on a QueueWaiters when the queue is empty. Adding never blocks, since the queue
+    has no bound. Elements can't be null.
+ */
+
+public class ConcurrentPriorityQueue<T> implements BlockingQueue<T>, Iterable<T> {
+
+    private static final int MAX_LEVEL = 32;
+
+    private static class Node<T> {
+        final T item;
+        final long sequence;
+        final AtomicMarkableReference<Node<T>>[] next;
+        final AtomicBoolean taken = new AtomicBoolean();
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Node(T item, long sequence, int levels){
+            this.item = item;
+            this.sequence = sequence;
+            next = (AtomicMarkableReference<Node<T>>[]) new AtomicMarkableReference[levels];
+            for(int i=0; i<levels; i++)
+                next[i] = new AtomicMarkableReference<>(null, false);
+        }
+
+        int topLevel(){ return next.length - 1; }
+    }
+
+    private final Node<T> head = new Node<>(null, Long.MIN_VALUE, MAX_LEVEL);      //never compared, never taken
+    private final Comparator<? super T> order;          //the element that compares smallest is on top
+    private final AtomicLong sequence = new AtomicLong();
+    private final QueueWaiters notEmpty = new QueueWaiters();
+
+    //elements have to be Comparable, the smallest is on top
+    public ConcurrentPriorityQueue(){
+        this(false);
+    }
+
+    //elements have to be Comparable...if maxOnTop, the largest is on top
+    @SuppressWarnings("unchecked")
+    public ConcurrentPriorityQueue(boolean maxOnTop){
+        this((Comparator<? super T>) (maxOnTop ? Comparator.reverseOrder() : Comparator.naturalOrder()));
+    }
+
+    public ConcurrentPriorityQueue(Comparator<? super T> order){
+        if(order == null)
+            throw new NullPointerException();
+        this.order = order;
+    }
+
+    @Override
+    public void add(T data){
+        offer(data);
+    }
+
+    //always succeeds, since the queue is unbounded
+    @Override
+    public boolean offer(T data){
+        if(data == null)
+            throw new NullPointerException();
+
+        Node<T> node = new Node<>(data, sequence.getAndIncrement(), randomLevels());
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Node<T>[] preds = (Node<T>[]) new Node[MAX_LEVEL];
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Node<T>[] succs = (Node<T>[]) new Node[MAX_LEVEL];
+
+        //the node is in the queue once it's linked into the bottom lane
+        while(true){
+            find(node, preds, succs);
+            for(int level = 0; level <= node.topLevel(); level++)
+                node.next[level].set(succs[level], false);
+
+            if(preds[0].next[0].compareAndSet(succs[0], node, false, false))
+                break;
+        }
+
+        //the express lanes are only shortcuts, so they're linked one by one afterwards
+        boolean[] marked = {false};
+        for(int level = 1; level <= node.topLevel(); level++){
+            while(true){
+                Node<T> next = node.next[level].get(marked);
+                if(marked[0])               //already being unlinked...no point in linking it any higher
+                    break;
+
+                if(next != succs[level] && !node.next[level].compareAndSet(next, succs[level], false, false))
+                    continue;
+                if(preds[level].next[level].compareAndSet(succs[level], node, false, false))
+                    break;
+
+                find(node, preds, succs);
+            }
+            if(marked[0])
+                break;
+        }
+
+        notEmpty.signal();
+        return true;
+    }
+
+    @Override
+    public boolean offer(T data, long timeout, TimeUnit unit){
+        return offer(data);
+    }
+
+    @Override
+    public void put(T data){
+        offer(data);
+    }
+
+    //removes and returns the element on top, or null if the queue is empty
+    @Override
+    public T poll(){
+        for(Node<T> node = head.next[0].getReference(); node != null; node = node.next[0].getReference()){
+            if(!node.taken.get() && node.taken.compareAndSet(false, true)){
+                unlink(node);
+                return node.item;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return notEmpty.await(this::poll, Math.max(0, unit.toNanos(timeout)));
+    }
+
+    @Override
+    public T take() throws InterruptedException {
+        return notEmpty.await(this::poll, -1);
+    }
+
+    //same as poll, except an empty queue throws an exception
+    @Override
+    public T remove(){
+        T toReturn = poll();
+        if(toReturn == null)
+            throw new NoSuchElementException();
+        return toReturn;
+    }
+
+    //removes one occurrence of the element...O(n), since the list is sorted by priority and not by equals
+    @Override
+    public boolean remove(T element){
+        if(element == null)
+            return false;
+
+        for(Node<T> node = head.next[0].getReference(); node != null; node = node.next[0].getReference()){
+            if(!node.taken.get() && element.equals(node.item) && node.taken.compareAndSet(false, true)){
+                unlink(node);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //returns but does not remove the element on top, or null if the queue is empty
+    @Override
+    public T peek(){
+        Node<T> node = first();
+        return node == null ? null : node.item;
+    }
+
+    //same as peek, except an empty queue throws an exception
+    @Override
+    public T element(){
+        T toReturn = peek();
+        if(toReturn == null)
+            throw new NoSuchElementException();
+        return toReturn;
+    }
+
+    @Override
+    public void clear(){
+        while(poll() != null);
+    }
+
+    @Override
+    public boolean contains(T element){
+        if(element == null)
+            return false;
+
+        for(T item : this){
+            if(element.equals(item))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isEmpty(){ return first() == null; }
+
+    //counts the elements one by one, so it's O(n)...and only a snapshot while other threads are adding or removing
+    @Override
+    public int size(){
+        int count = 0;
+        for(Node<T> node = head.next[0].getReference(); node != null; node = node.next[0].getReference()){
+            if(!node.taken.get() && ++count == Integer.MAX_VALUE)
+                break;
+        }
+        return count;
+    }
+
+    @Override
+    public int remainingCapacity(){ return Integer.MAX_VALUE; }
+
+    //walks the bottom lane as it is linked at the time, so the elements come out in priority order...elements added
+    //or removed while it runs may or may not be seen
+    @Override
+    public Iterator<T> iterator(){
+        return new Iterator<T>() {
+            private Node<T> next = first();
+
+            @Override
+            public boolean hasNext() { return next != null; }
+
+            @Override
+            public T next() {
+                if(next == null)
+                    throw new NoSuchElementException();
+
+                T toReturn = next.item;
+                next = nextUntaken(next.next[0].getReference());
+                return toReturn;
+            }
+        };
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder toReturn = new StringBuilder("[");
+        for(T item : this)
+            toReturn.append(item).append(", ");
+
+        if(toReturn.length() > 1)
+            toReturn.setLength(toReturn.length() - 2);
+        return toReturn.append("]").toString();
+    }
+
+    private Node<T> first(){
+        return nextUntaken(head.next[0].getReference());
+    }
+
+    private static <T> Node<T> nextUntaken(Node<T> node){
+        while(node != null && node.taken.get())
+            node = node.next[0].getReference();
+        return node;
+    }
+
+    //true if a belongs strictly closer to the front than b
+    private boolean before(Node<T> a, Node<T> b){
+        int compareValue = order.compare(a.item, b.item);
+        return compareValue < 0 || (compareValue == 0 && a.sequence < b.sequence);
+    }
+
+    //fills preds/succs with the last node before the key and the first node not before it on every lane, snipping
+    //out the marked nodes it passes...starts over from the top whenever a snip fails, since pred changed under it
+    private void find(Node<T> key, Node<T>[] preds, Node<T>[] succs){
+        boolean[] marked = {false};
+
+        retry:
+        while(true){
+            Node<T> pred = head;
+            for(int level = MAX_LEVEL - 1; level >= 0; level--){
+                Node<T> curr = pred.next[level].getReference();
+
+                while(curr != null){
+                    Node<T> succ = curr.next[level].get(marked);
+                    while(marked[0]){           //curr is being unlinked...help it out of this lane
+                        if(!pred.next[level].compareAndSet(curr, succ, false, false))
+                            continue retry;
+
+                        curr = succ;
+                        if(curr == null)
+                            break;
+                        succ = curr.next[level].get(marked);
+                    }
+
+                    if(curr == null || !before(curr, key))
+                        break;
+
+                    pred = curr;
+                    curr = succ;
+                }
+
+                preds[level] = pred;
+                succs[level] = curr;
+            }
+            return;
+        }
+    }
+
+    //marks the node's next pointers from the top lane down, then a find() snips it out of every lane
+    private void unlink(Node<T> node){
+        boolean[] marked = {false};
+
+        for(int level = node.topLevel(); level >= 0; level--){
+            Node<T> next = node.next[level].get(marked);
+            while(!marked[0]){
+                node.next[level].attemptMark(next, true);
+                next = node.next[level].get(marked);
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Node<T>[] preds = (Node<T>[]) new Node[MAX_LEVEL];
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Node<T>[] succs = (Node<T>[]) new Node[MAX_LEVEL];
+        find(node, preds, succs);
+    }
+
+    //1 lane with probability 1/2, 2 lanes with 1/4, and so on
+    private static int randomLevels(){
+        return 1 + Integer.numberOfTrailingZeros(ThreadLocalRandom.current().nextInt() | (1 << (MAX_LEVEL - 1)));
+    }
+}
@@ -1,15 +1,27 @@
-import java.util.ArrayList;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 public class HashMap<K, V> implements Map<K, V> {
 
     public static class Entry<K, V> implements Map.Entry<K, V> {       //LOOK INTO IF PRIVATE STATIC IS SUITABLE HERE
+        private final int hash;         //spread hash of the key, computed once so rehashing and lookups don't call hashCode() again
         private K key;
         private V value;
 
         public Entry(K key, V value){
+            this(hash(key), key, value);
+        }
+
+        Entry(int hash, K key, V value){
+            this.hash = hash;
             this.key = key;
             this.value = value;
         }
@@ -33,253 +45,1158 @@ public class HashMap<K, V> implements Map<K, V> {
     }
 
 
-    //INSTEAD OF USING LINKEDLISTS FOR EACH BUCKET, JAVA NOW USES AVL TREES...WE CAN INCORPORATE THIS LATER
+    //a bucket starts out as a LinkedList, but once it collects TREEIFY_THRESHOLD entries it is converted into a TreeBin
+    //(an AVL tree ordered by hash code, then by key) so a flood of colliding keys can't make lookups linear...it is
+    //converted back into a list once it shrinks down to UNTREEIFY_THRESHOLD entries
+    private static final int TREEIFY_THRESHOLD = 8;
+    private static final int UNTREEIFY_THRESHOLD = 6;
+    private static final int MIN_TREEIFY_CAPACITY = 64;     //below this, a crowded bucket is more likely fixed by the next rehash
 
     private LinkedList<Entry<K, V>>[] hashMap;      //linkedList is for separate chaining
+    private TreeBin<K, V>[] trees;                  //trees[i] != null means bucket i is treeified and hashMap[i] is null
     private float maxLoadFactor;
     private int capacity;
     private int items;
+    private int modCount;           //bumped on every structural change so iterators can fail fast
+    private int minCapacity;        //the capacity the map was created with...removals never shrink the table below it
+
+    //incremental resizing...while a resize is in progress the old table is kept around and drained a few buckets at a time
+    private static final int MIGRATE_STEP = 8;          //max number of non-empty buckets moved per operation
+
+    private boolean incrementalResize;
+    private LinkedList<Entry<K, V>>[] oldMap;           //null unless a resize is in progress
+    private TreeBin<K, V>[] oldTrees;
+    private int oldCapacity;
+    private int migrateIndex;                           //buckets of oldMap below this index have already been moved
 
     public HashMap(){               //default constructor
         maxLoadFactor = 0.75F;
         capacity = 16;
+        minCapacity = capacity;
         items = 0;
 
-        hashMap = new LinkedList[capacity];
+        allocateTable(capacity);
     }
 
     public HashMap(int initialCapacity){        //alternative constructors below
         maxLoadFactor = 0.75F;
         capacity = initialCapacity;
+        minCapacity = capacity;
         items = 0;
 
-        hashMap = new LinkedList[capacity];
+        allocateTable(capacity);
     }
 
     public HashMap(int initialCapacity, float loadFactor){
         maxLoadFactor = loadFactor;
         capacity = initialCapacity;
+        minCapacity = capacity;
         items = 0;
 
-        hashMap = new LinkedList[capacity];
+        allocateTable(capacity);
     }
 
-    //THE LAST CONSTRUCTOR IMPLEMENTATION IS ONE WITH AN INPUT MAP
+    //when incrementalResize is true, growing the table is spread out over the following put/get/remove calls
+    //instead of happening all at once inside a single put
+    public HashMap(int initialCapacity, float loadFactor, boolean incrementalResize){
+        this(initialCapacity, loadFactor);
+        this.incrementalResize = incrementalResize;
+    }
+
+    //copy constructor...the table is sized for m up front, so filling it never triggers a rehash
+    public HashMap(Map<? extends K, ? extends V> m){
+        this(capacityFor(m.size(), 0.75F, 16), 0.75F);
+        putAll(m);
+    }
 
     @Override
     public V put(K key, V value){
-        Entry<K, V> entryToAdd = new Entry<>(key, value);
+        int hash = hash(key);
+        advanceResize(hash);
 
-        int hashCode = Math.abs(entryToAdd.key.hashCode()) % capacity;
+        int index = indexFor(hash);
 
-        items++;
+        //have to check if key is already present...if so, just change its value
+        Entry<K, V> entry = findEntry(index, hash, key);
+        if(entry != null){
+            V toReturn = entry.value;
+            entry.value = value;
+            entryAccessed(entry);
+
+            return toReturn;
+        }
 
-        if(hashMap[hashCode] == null){                              //if bucket is null, initialize new LinkedList
-            hashMap[hashCode] = new LinkedList<>();
-            hashMap[hashCode].add(entryToAdd);
+        //if key not present, just add the entry
+        addNew(index, hash, key, value);
+        return null;
+    }
+
+    //the methods below look the key up once and then work on the entry they found, instead of going through
+    //get() and put() and hashing the key twice...the function must not modify the map itself
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue){
+        int hash = hash(key);
+        advanceResize(hash);
+
+        Entry<K, V> entry = findEntry(indexFor(hash), hash, key);
+        if(entry == null)
+            return defaultValue;
 
-            if((items / (float) capacity) >= maxLoadFactor)
-                rehash();
+        entryAccessed(entry);
+        return entry.value;
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction){
+        if(mappingFunction == null)
+            throw new NullPointerException();
+
+        int hash = hash(key);
+        advanceResize(hash);
+
+        int index = indexFor(hash);
+        Entry<K, V> entry = findEntry(index, hash, key);
+        if(entry != null && entry.value != null){
+            entryAccessed(entry);
+            return entry.value;
         }
-        else {
-            LinkedList<Entry<K, V>> bucket = hashMap[hashCode];
 
-            //have to check if key is already present...if so, just change its value
-            for(Entry<K, V> entry : bucket){
-                if(key.equals(entry.key)){
-                    V toReturn = entry.value;
-                    entry.value = value;
+        int expectedModCount = modCount;
+        V value = mappingFunction.apply(key);
+        if(modCount != expectedModCount)
+            throw new ConcurrentModificationException();
 
-                    return toReturn;
-                }
+        if(value != null){
+            if(entry != null){
+                entry.value = value;
+                entryAccessed(entry);
             }
+            else
+                addNew(index, hash, key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction){
+        if(remappingFunction == null)
+            throw new NullPointerException();
+
+        int hash = hash(key);
+        advanceResize(hash);
 
-            //if key not present, just add the entry
+        int index = indexFor(hash);
+        Entry<K, V> entry = findEntry(index, hash, key);
+        if(entry == null || entry.value == null)
+            return null;
+
+        int expectedModCount = modCount;
+        V value = remappingFunction.apply(key, entry.value);
+        if(modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+
+        return update(index, entry, value);
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction){
+        if(remappingFunction == null)
+            throw new NullPointerException();
 
-            bucket.add(entryToAdd);
-            if((items / (float) capacity) > maxLoadFactor)
-                rehash();
+        int hash = hash(key);
+        advanceResize(hash);
 
+        int index = indexFor(hash);
+        Entry<K, V> entry = findEntry(index, hash, key);
+
+        int expectedModCount = modCount;
+        V value = remappingFunction.apply(key, entry == null ? null : entry.value);
+        if(modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+
+        if(entry != null)
+            return update(index, entry, value);
+
+        if(value != null)
+            addNew(index, hash, key, value);
+        return value;
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction){
+        if(value == null || remappingFunction == null)
+            throw new NullPointerException();
+
+        int hash = hash(key);
+        advanceResize(hash);
+
+        int index = indexFor(hash);
+        Entry<K, V> entry = findEntry(index, hash, key);
+        if(entry == null){
+            addNew(index, hash, key, value);
+            return value;
         }
-        return null;
+        if(entry.value == null){
+            entry.value = value;
+            entryAccessed(entry);
+            return value;
+        }
+
+        int expectedModCount = modCount;
+        V newValue = remappingFunction.apply(entry.value, value);
+        if(modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+
+        return update(index, entry, newValue);
     }
 
 
     @Override
     public void putAll(Map<? extends K, ? extends V> m) {
-        if(m != null){
-            for(Map.Entry<? extends K, ? extends V> entry : m.entrySet()){
-                put(entry.getKey(), entry.getValue());
+        if(m == null || m.isEmpty())
+            return;
+
+        //grow once to fit everything, then insert without checking the load factor after every entry
+        ensureCapacity(items + m.size());
+
+        for(Map.Entry<? extends K, ? extends V> entry : m.entrySet()){
+            int hash = hash(entry.getKey());
+            items += bulkPut(indexFor(hash), hash, entry.getKey(), entry.getValue());
+        }
+
+        modCount++;
+    }
+
+    //same as putAll, but the keys are hashed and the buckets filled by several threads at once...meant for
+    //warm-starting very large maps, since for small ones starting the threads costs more than it saves
+    @SuppressWarnings("unchecked")
+    public void putAllParallel(Map<? extends K, ? extends V> m, int threads){
+        if(m == null || m.isEmpty())
+            return;
+        if(threads < 1)
+            throw new IllegalArgumentException("Illegal thread count: " + threads);
+
+        ensureCapacity(items + m.size());
+
+        //the threads below fill the new table directly and never migrate anything, so an incremental resize that is
+        //still holding entries in the old table would let them insert a second copy of those keys
+        if(oldMap != null)
+            throw new IllegalStateException("Resize still in progress");
+
+        //the source map can only be walked by one thread, so copy its entries out first
+        int n = m.size();
+        Object[] keys = new Object[n];
+        Object[] values = new Object[n];
+        int[] hashes = new int[n];
+        int[] buckets = new int[n];
+
+        int j = 0;
+        for(Map.Entry<? extends K, ? extends V> entry : m.entrySet()){
+            keys[j] = entry.getKey();
+            values[j] = entry.getValue();
+            j++;
+        }
+
+        //phase 1: every thread hashes its own slice of the keys, and counts how many of them each thread will own
+        //in phase 2...bucket b belongs to thread b * threads / capacity
+        int[][] counts = new int[threads][threads];
+        runInParallel(threads, (t) -> {
+            int from = (int) ((long) n * t / threads);
+            int to = (int) ((long) n * (t + 1) / threads);
+
+            for(int k=from; k<to; k++){
+                hashes[k] = hash(keys[k]);
+                buckets[k] = indexFor(hashes[k]);
+                counts[t][owner(buckets[k], threads)]++;
+            }
+            return 0;
+        });
+
+        //a counting sort of the key indices by owner...owner o's indices end up in order[start[o]] to order[start[o+1]],
+        //and each slice of phase 1 writes its share of them from offsets[t][o] onwards
+        int[] start = new int[threads + 1];
+        int[][] offsets = new int[threads][threads];
+        int position = 0;
+        for(int o=0; o<threads; o++){
+            start[o] = position;
+            for(int t=0; t<threads; t++){
+                offsets[t][o] = position;
+                position += counts[t][o];
             }
         }
+        start[threads] = position;
+
+        int[] order = new int[n];
+        runInParallel(threads, (t) -> {
+            int from = (int) ((long) n * t / threads);
+            int to = (int) ((long) n * (t + 1) / threads);
+
+            for(int k=from; k<to; k++)
+                order[offsets[t][owner(buckets[k], threads)]++] = k;
+            return 0;
+        });
+
+        //phase 2: every thread only walks the keys of its own buckets, so no two threads ever touch the same bucket
+        int added = runInParallel(threads, (t) -> {
+            int count = 0;
+
+            for(int i=start[t]; i<start[t + 1]; i++){
+                int k = order[i];
+                count += bulkPut(buckets[k], hashes[k], (K) keys[k], (V) values[k]);
+            }
+            return count;
+        });
+
+        items += added;
+        modCount++;
+    }
+
+    //the thread that puts the keys of bucket index in putAllParallel
+    private int owner(int index, int threads){
+        return (int) ((long) index * threads / capacity);
     }
 
     @Override
     public void clear() {
-        for(int i=0; i<capacity; i++){
-            if(hashMap[i] != null){
-                hashMap[i].clear();
-                hashMap[i] = null;
+        clearBuckets(null);
+    }
+
+    //empties the table...a subclass that knows every entry can pass them in, and then only their buckets are
+    //cleared instead of every bucket of the table
+    void clearBuckets(Iterator<Entry<K, V>> entries) {
+        if(capacity > minCapacity){
+            //a table that has grown is dropped rather than scanned, and the map starts over at its original size
+            oldMap = null;
+            oldTrees = null;
+
+            capacity = minCapacity;
+            allocateTable(capacity);
+        }
+        else if(oldMap != null || entries == null){
+            oldMap = null;          //any resize in progress is simply abandoned
+            oldTrees = null;
+
+            for(int i=0; i<capacity; i++){
+                if(hashMap[i] != null){
+                    hashMap[i].clear();
+                    hashMap[i] = null;
+                }
+                trees[i] = null;
+            }
+        }
+        else {
+            while(entries.hasNext()){
+                int index = indexFor(entries.next().hash);
+                hashMap[index] = null;
+                trees[index] = null;
             }
         }
 
         items = 0;
+        modCount++;
     }
 
+    //the three views below are live...they read straight out of the bucket array instead of copying it,
+    //reflect later changes to the map, and removing through them (or their iterators) removes from the map
+
     @Override
     public Set<K> keySet() {
-        Set<K> keys = new HashSet<>();
+        return new KeySet();
+    }
 
-        for(int i=0; i<capacity; i++){
-            if(hashMap[i] != null){
-                for(Entry<K, V> entry : hashMap[i])
-                    keys.add(entry.key);
-            }
-        }
+    @Override
+    public Collection<V> values() {
+        return new Values();
+    }
 
-        return keys;
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySet();
     }
 
     @Override
-    public Collection<V> values() {
-        //instantiate a Collection list to store the values in
-        //traverse over hashMap and add each value to the Collection
+    public V remove(Object key){
+        int hash = hash(key);
+        advanceResize(hash);
 
-        Collection<V> values = new ArrayList<>();
+        Entry<K, V> removed = removeEntry(indexFor(hash), hash, key);     //map the input key with hash function
+        if(removed == null)
+            return null;
+
+        items--;
+        modCount++;
+        entryRemoved(removed);
+        shrinkIfSparse();
+        return removed.value;
+    }
+
+    @Override
+    public int size(){ return items; }
+
+    @Override
+    public boolean isEmpty() { return items == 0; }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int hash = hash(key);
+        advanceResize(hash);
+
+        return findEntry(indexFor(hash), hash, key) != null;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        finishResize();
+
+        //we can't just search up with a hashed key
+        //so we have to traverse the entire hashMap
 
         for(int i=0; i<capacity; i++){
-            if(hashMap[i] != null){
-                for(Entry<K, V> entry : hashMap[i])
-                    values.add(entry.value);
+            for(Entry<K, V> entry : bucketAt(i)){
+                if(value.equals(entry.value))
+                    return true;
             }
         }
+        return false;
+    }
 
-        return values;
+    @Override
+    public V get(Object key) {
+        int hash = hash(key);
+        advanceResize(hash);
+
+        Entry<K, V> entry = findEntry(indexFor(hash), hash, key);
+        if(entry == null)
+            return null;
+
+        entryAccessed(entry);
+        return entry.value;
     }
 
     @Override
-    public Set<Map.Entry<K, V>> entrySet() {
-        Set<Map.Entry<K, V>> entrySet = new HashSet<>();
+    public String toString(){
+        if(items == 0)
+            return "{}";
 
-        for(int i=0; i<capacity; i++){
-            if(hashMap[i] != null){
-                for(Entry<K, V> entry : hashMap[i]){
-                    entrySet.add(entry);
+        StringBuilder toReturn = new StringBuilder("{");
+
+        Iterator<Entry<K, V>> iterator = entryIterator();
+        while(iterator.hasNext())
+            toReturn.append(iterator.next()).append(", ");
+
+        toReturn.setLength(toReturn.length() - 2);
+        return toReturn.append("}").toString();
+    }
+
+    //walks the bucket array in place...tree bins are the one exception, their entries are copied out one bucket at a time
+    private class HashIterator {
+        private int index;                          //bucket of the entry returned by nextEntry()
+        private Iterator<Entry<K, V>> bucket;
+        private int nextIndex;
+        private Entry<K, V> next;
+        private Entry<K, V> current;                //last entry returned, null once it's been removed
+        private int currentIndex;
+        private int expectedModCount;
+
+        HashIterator(){
+            finishResize();         //a pending incremental resize would otherwise split the entries over two tables
+
+            expectedModCount = modCount;
+            index = -1;
+            bucket = null;
+            advance();
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        Entry<K, V> nextEntry(){
+            if(modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if(next == null)
+                throw new NoSuchElementException();
+
+            current = next;
+            currentIndex = nextIndex;
+            advance();
+            return current;
+        }
+
+        public void remove() {
+            if(current == null)
+                throw new IllegalStateException();
+            if(modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+
+            removeEntry(currentIndex, current.hash, current.key);
+
+            //removeEntry() unlinks through an iterator of its own, so if next sits in the same bucket, the bucket
+            //iterator is now stale...start a fresh one and walk it back to just past next
+            if(currentIndex == index && next != null){
+                bucket = trees[index] != null ? trees[index].entries().iterator() : hashMap[index].iterator();
+                while(bucket.next() != next);
+            }
+
+            items--;
+            modCount++;
+            entryRemoved(current);
+
+            expectedModCount = modCount;
+            current = null;
+        }
+
+        //finds the entry after the current one, moving on through the buckets as each one runs out
+        private void advance(){
+            while(bucket == null || !bucket.hasNext()){
+                if(++index >= capacity){
+                    next = null;
+                    return;
                 }
+
+                if(trees[index] != null)
+                    bucket = trees[index].entries().iterator();
+                else if(hashMap[index] != null)
+                    bucket = hashMap[index].iterator();
+                else
+                    bucket = null;
             }
+
+            next = bucket.next();
+            nextIndex = index;
         }
+    }
 
-        return entrySet;
+    private class EntryIterator extends HashIterator implements Iterator<Entry<K, V>> {
+        @Override
+        public Entry<K, V> next() { return nextEntry(); }
     }
 
-    @Override
-    public V remove(Object key){
-        int hashCode = Math.abs(key.hashCode()) % capacity;     //map the input key with hash function
-        LinkedList<Entry<K, V>> bucket = hashMap[hashCode];
+    private class KeyIterator extends HashIterator implements Iterator<K> {
+        @Override
+        public K next() { return nextEntry().key; }
+    }
+
+    private class ValueIterator extends HashIterator implements Iterator<V> {
+        @Override
+        public V next() { return nextEntry().value; }
+    }
+
+    Iterator<Entry<K, V>> entryIterator(){ return new EntryIterator(); }
+
+    Iterator<K> keyIterator(){ return new KeyIterator(); }
+
+    Iterator<V> valueIterator(){ return new ValueIterator(); }
+
+    //hooks for LinkedHashMap...every entry the map stores is created by newEntry(), entryAccessed() runs whenever an
+    //existing entry is read or overwritten, and entryRemoved() after an entry has been taken out of the table
+
+    Entry<K, V> newEntry(int hash, K key, V value){ return new Entry<>(hash, key, value); }
+
+    void entryAccessed(Entry<K, V> entry){ }
+
+    void entryRemoved(Entry<K, V> entry){ }
+
+    private class KeySet extends AbstractSet<K> {
+        @Override
+        public Iterator<K> iterator() { return keyIterator(); }
+
+        @Override
+        public int size() { return items; }
+
+        @Override
+        public boolean contains(Object o) { return containsKey(o); }
+
+        @Override
+        public boolean remove(Object o) {
+            int before = items;
+            HashMap.this.remove(o);
+            return items != before;
+        }
+
+        @Override
+        public void clear() { HashMap.this.clear(); }
+    }
+
+    private class Values extends AbstractCollection<V> {
+        @Override
+        public Iterator<V> iterator() { return valueIterator(); }
+
+        @Override
+        public int size() { return items; }
+
+        @Override
+        public boolean contains(Object o) { return containsValue(o); }
+
+        @Override
+        public void clear() { HashMap.this.clear(); }
+    }
+
+    private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+        @Override
+        @SuppressWarnings("unchecked")
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return (Iterator<Map.Entry<K, V>>) (Iterator<?>) entryIterator();
+        }
+
+        @Override
+        public int size() { return items; }
+
+        @Override
+        public boolean contains(Object o) {
+            if(!(o instanceof Map.Entry))
+                return false;
+
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            if(entry.getKey() == null)
+                return false;
+
+            //one lookup, and no entryAccessed()...a read through the view mustn't reorder an access-ordered map
+            int hash = hash(entry.getKey());
+            advanceResize(hash);
+
+            Entry<K, V> found = findEntry(indexFor(hash), hash, entry.getKey());
+            if(found == null)
+                return false;
+            return found.value == null ? entry.getValue() == null : found.value.equals(entry.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if(!contains(o))
+                return false;
+
+            HashMap.this.remove(((Map.Entry<?, ?>) o).getKey());
+            return true;
+        }
+
+        @Override
+        public void clear() { HashMap.this.clear(); }
+    }
+
+    //looks for the key in a single bucket of the current table...the stored hashes are compared first, so equals()
+    //only runs on entries that are very likely to match
+    private Entry<K, V> findEntry(int index, int hash, Object key){
+        if(trees[index] != null)
+            return trees[index].find(hash, key);
+
+        if(hashMap[index] != null){
+            for(Entry<K, V> entry : hashMap[index]){
+                if(matches(entry, hash, key))
+                    return entry;
+            }
+        }
 
+        return null;
+    }
+
+    //adds an entry whose key is known to be absent, treeifying the bucket if it has grown too long
+    private void addEntry(int index, Entry<K, V> entry){
+        if(trees[index] != null){
+            if(trees[index].canHold(entry.key)){
+                trees[index].add(entry);
+                return;
+            }
+            untreeify(index);       //a key the tree can't order...fall back to a plain list for this bucket
+        }
+
+        if(hashMap[index] == null)          //if bucket is null, initialize new LinkedList
+            hashMap[index] = new LinkedList<>();
+        hashMap[index].add(entry);
+
+        if(hashMap[index].size() >= TREEIFY_THRESHOLD && capacity >= MIN_TREEIFY_CAPACITY)
+            treeify(index);
+    }
+
+    private Entry<K, V> removeEntry(int index, int hash, Object key){
+        TreeBin<K, V> tree = trees[index];
+        if(tree != null){
+            Entry<K, V> removed = tree.remove(hash, key);
+
+            if(tree.size() <= UNTREEIFY_THRESHOLD)
+                untreeify(index);
+            return removed;
+        }
+
+        LinkedList<Entry<K, V>> bucket = hashMap[index];
         if(bucket == null)         //if bucket is null, we would get an error if we try to traverse it
             return null;
 
-        for(Entry<K, V> entry : bucket){
-            if(key.equals(entry.key)){
-                V toReturn = entry.value;
-                bucket.remove(entry);
-
-                items--;
+        //the list iterator unlinks the entry where it stands instead of searching the bucket a second time
+        for(ListIterator<Entry<K, V>> it = bucket.listIterator(); it.hasNext(); ){
+            Entry<K, V> entry = it.next();
+            if(matches(entry, hash, key)){
+                it.remove();
 
                 if(bucket.size() == 0)          //just a preference...if a bucket has no items in it, I want it to be null
-                    hashMap[hashCode] = null;
+                    hashMap[index] = null;
 
-                return toReturn;
+                return entry;
             }
         }
 
         return null;
     }
 
-    @Override
-    public int size(){ return items; }
+    //the entries of bucket i of the current table, whether it is a list or a tree
+    private Iterable<Entry<K, V>> bucketAt(int index){
+        if(trees[index] != null)
+            return trees[index].entries();
+        if(hashMap[index] != null)
+            return hashMap[index];
+        return new LinkedList<>();
+    }
 
-    @Override
-    public boolean isEmpty() { return items == 0; }
+    //a bucket can only become a tree when every key in it is Comparable and of the same class...otherwise there is
+    //no total order to sort the colliding keys by and the bucket simply stays a list
+    private void treeify(int index){
+        LinkedList<Entry<K, V>> bucket = hashMap[index];
+        Class<?> keyClass = TreeBin.comparableClassOf(bucket.peek().key);
+        if(keyClass == null)
+            return;
 
-    @Override
-    public boolean containsKey(Object key) {
-        int hashCode = Math.abs(key.hashCode()) % capacity;
+        for(Entry<K, V> entry : bucket){
+            if(entry.key.getClass() != keyClass)
+                return;
+        }
 
-        if(hashMap[hashCode] == null)
-            return false;
-        else {
+        TreeBin<K, V> tree = new TreeBin<>(keyClass);
+        for(Entry<K, V> entry : bucket)
+            tree.add(entry);
 
-            //loop through each entry in the bucket and see if the key exists
-            for(Entry<K, V> entry : hashMap[hashCode]){
-                if(key.equals(entry.key))
-                    return true;
-            }
+        trees[index] = tree;
+        hashMap[index] = null;
+    }
+
+    private void untreeify(int index){
+        TreeBin<K, V> tree = trees[index];
+        trees[index] = null;
+
+        if(tree.size() == 0)
+            return;
+
+        hashMap[index] = tree.entries();
+    }
+
+    //the hash every entry stores...same spreading as OpenHashMap, so keys that only differ in their high bits still
+    //land in different buckets
+    static int hash(Object key){
+        return OpenHashMap.spread(key.hashCode());
+    }
+
+    //maps a hash to its bucket...masking off the sign bit keeps Integer.MIN_VALUE hashes from producing a negative index
+    private int indexFor(int hash){
+        return (hash & 0x7FFFFFFF) % capacity;
+    }
+
+    //the cheap hash comparison short-circuits most mismatches before equals() is ever called
+    private static boolean matches(Entry<?, ?> entry, int hash, Object key){
+        return entry.hash == hash && (entry.key == key || key.equals(entry.key));
+    }
+
+    //adds a key that findEntry() just failed to find in bucket index
+    private void addNew(int index, int hash, K key, V value){
+        addEntry(index, newEntry(hash, key, value));
+        items++;
+        modCount++;
+
+        if((items / (float) capacity) > maxLoadFactor)
+            rehash();
+    }
+
+    //stores the result of a remapping function in an entry that was found earlier...null removes the entry
+    private V update(int index, Entry<K, V> entry, V value){
+        if(value != null){
+            entry.value = value;
+            entryAccessed(entry);
+            return value;
         }
 
-        return false;
+        removeEntry(index, entry.hash, entry.key);
+        items--;
+        modCount++;
+        entryRemoved(entry);
+        shrinkIfSparse();
+        return null;
     }
 
-    @Override
-    public boolean containsValue(Object value) {
-        //we can't just search up with a hashed key
-        //so we have to traverse the entire hashMap
+    //inserts or updates one entry of a bulk load without any load factor check...returns 1 if the key was new
+    private int bulkPut(int index, int hash, K key, V value){
+        Entry<K, V> entry = findEntry(index, hash, key);
+        if(entry != null){
+            entry.value = value;
+            entryAccessed(entry);
+            return 0;
+        }
 
-        for(int i=0; i<capacity; i++){
-            if(hashMap[i] != null){
-                for(Entry<K, V> entry : hashMap[i]){
-                    if(value.equals(entry.value))
-                        return true;
+        addEntry(index, newEntry(hash, key, value));
+        return 1;
+    }
+
+    //grows the table in one step so it can hold the given number of entries without going over the load factor
+    private void ensureCapacity(int expectedItems){
+        finishResize();
+
+        int newCapacity = capacityFor(expectedItems, maxLoadFactor, capacity);
+        if(newCapacity > capacity){
+            resize(newCapacity);
+            finishResize();         //bulkPut() only looks in the new table, so nothing may be left behind in the old one
+        }
+    }
+
+    //follows the same 2n+1 growth as rehash() until the table is big enough
+    private static int capacityFor(int expectedItems, float loadFactor, int startCapacity){
+        long newCapacity = Math.max(startCapacity, 1);
+        while(expectedItems / (float) newCapacity > loadFactor && newCapacity < Integer.MAX_VALUE / 2)
+            newCapacity = 2*newCapacity + 1;
+
+        return (int) newCapacity;
+    }
+
+    private interface ParallelTask {
+        int run(int thread);
+    }
+
+    //runs the task once on each of the given number of threads and adds up what they return
+    private static int runInParallel(int threads, ParallelTask task){
+        int[] results = new int[threads];
+        RuntimeException[] failures = new RuntimeException[threads];
+        Thread[] workers = new Thread[threads];
+
+        for(int t=0; t<threads; t++){
+            final int thread = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    results[thread] = task.run(thread);
+                } catch(RuntimeException e){
+                    failures[thread] = e;
                 }
+            });
+            workers[t].start();
+        }
+
+        int total = 0;
+        for(int t=0; t<threads; t++){
+            try {
+                workers[t].join();
+            } catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while filling the map", e);
             }
+
+            if(failures[t] != null)
+                throw failures[t];
+            total += results[t];
         }
-        return false;
+
+        return total;
     }
 
-    @Override
-    public V get(Object key) {
-        int hashCode = Math.abs(key.hashCode()) % capacity;
+    //shrinks the table to the smallest capacity that holds the current entries without going over the load factor,
+    //even below the capacity the map was created with
+    public void trimToSize(){
+        finishResize();
 
-        if(hashMap[hashCode] != null){
-            for(Entry<K, V> entry : hashMap[hashCode]){
-                if(key.equals(entry.key))
-                    return entry.value;
+        int newCapacity = capacityFor(items, maxLoadFactor, 1);
+        if(newCapacity < capacity)
+            resize(newCapacity);
+    }
 
+    private void rehash(){
+        resize(2*capacity + 1);
+    }
+
+    //undoes one rehash() once the map has drained below a quarter of the load factor...the table is then only half
+    //full after shrinking, so a few puts right after can't grow it straight back
+    //only called from remove(), compute() and friends, never while an iterator is walking the table
+    private void shrinkIfSparse(){
+        if(capacity > minCapacity && (items / (float) capacity) < maxLoadFactor / 4)
+            resize(Math.max((capacity - 1) / 2, minCapacity));
+    }
+
+    private void resize(int newCapacity){
+        if(oldMap != null)          //a new resize can't start until the previous one has drained
+            finishResize();
+
+        LinkedList<Entry<K, V>>[] previous = hashMap;    //store pre-rehashing state of hashmap
+        TreeBin<K, V>[] previousTrees = trees;
+        int previousCapacity = capacity;
+
+        capacity = newCapacity;              //update variables
+        allocateTable(capacity);
+
+        oldMap = previous;
+        oldTrees = previousTrees;
+        modCount++;
+        oldCapacity = previousCapacity;
+        migrateIndex = 0;
+
+        if(!incrementalResize)
+            finishResize();
+    }
+
+    //creates empty bucket and tree arrays of the given size...generic arrays can only be created raw
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void allocateTable(int size){
+        hashMap = new LinkedList[size];
+        trees = new TreeBin[size];
+    }
+
+    //moves a bounded number of buckets over from the old table...the bucket the key maps to is always moved first,
+    //which means every lookup afterwards only ever has to look in the new table
+    private void advanceResize(int hash){
+        if(oldMap == null)
+            return;
+
+        migrateBucket((hash & 0x7FFFFFFF) % oldCapacity);
+
+        int moved = 0;
+        int visited = 0;        //empty buckets count too, otherwise a sparse table could make one call scan everything
+        while(migrateIndex < oldCapacity && moved < MIGRATE_STEP && visited < 4*MIGRATE_STEP){
+            if(oldMap[migrateIndex] != null || oldTrees[migrateIndex] != null){
+                migrateBucket(migrateIndex);
+                moved++;
             }
+            migrateIndex++;
+            visited++;
         }
 
-        return null;
+        if(migrateIndex == oldCapacity){
+            oldMap = null;
+            oldTrees = null;
+        }
     }
 
-    @Override
-    public String toString(){
-        String toReturn = "{";
+    //moves whatever is left in the old table...used before operations that have to see every entry anyway
+    private void finishResize(){
+        if(oldMap == null)
+            return;
 
-        Set<Map.Entry<K, V>> entries = entrySet();
-        for(Map.Entry<K, V> entry : entries){
-            toReturn += entry.toString() + ", ";
-        }
+        modCount++;
 
-        return toReturn.substring(0, toReturn.length()-2) + "}";
+        for(; migrateIndex < oldCapacity; migrateIndex++)
+            migrateBucket(migrateIndex);
+
+        oldMap = null;
+        oldTrees = null;
     }
 
-    private void rehash(){
-        LinkedList<Entry<K, V>>[] oldMap = hashMap;    //store pre-rehashing state of hashmap
+    //relinks the entries of one old bucket into the new table, reusing the existing Entry objects and their stored hashes
+    private void migrateBucket(int index){
+        Iterable<Entry<K, V>> bucket = oldTrees[index] != null ? oldTrees[index].entries() : oldMap[index];
+        if(bucket == null)
+            return;
 
-        capacity = 2*capacity + 1;              //update variables
-        hashMap = new LinkedList[capacity];
-        items = 0;
+        for(Entry<K, V> entry : bucket)
+            addEntry(indexFor(entry.hash), entry);
+
+        oldMap[index] = null;
+        oldTrees[index] = null;
+    }
+
+    /*
+        A treeified bucket. It is an AVL tree like the one in AVLTree.java, except nodes are ordered by the entry's stored
+        hash first and the key's compareTo() second, heights are stored in the nodes instead of being recomputed, and
+        it hands back the Entry it finds so the map can read or update the value in place.
+     */
+    private static class TreeBin<K, V> {
+
+        private static class TreeNode<K, V> {
+            private Entry<K, V> entry;
+
+            private TreeNode<K, V> left;
+            private TreeNode<K, V> right;
+            private int height;
 
-        //add all entries from oldMap onto the new one that was created
-        for(LinkedList<Entry<K, V>> bucket : oldMap){
+            public TreeNode(Entry<K, V> entry){
+                this.entry = entry;
+                left = right = null;
+                height = 0;
+            }
+        }
+
+        private final Class<?> keyClass;        //every key in the tree is an instance of exactly this class
+        private TreeNode<K, V> root;
+        private int size;
+
+        public TreeBin(Class<?> keyClass){
+            this.keyClass = keyClass;
+            root = null;
+            size = 0;
+        }
 
-            //if there exists a linkedlist at a bucket, add each of its elements to new hashMap
-            if(bucket != null){
-                for(Entry<K, V> entry : bucket){
-                    put(entry.key, entry.value);
+        //returns the key's class if it can be ordered by compareTo, null otherwise
+        static Class<?> comparableClassOf(Object key){
+            return key instanceof Comparable ? key.getClass() : null;
+        }
+
+        public boolean canHold(Object key){ return key.getClass() == keyClass; }
+
+        public int size(){ return size; }
+
+        public Entry<K, V> find(int hash, Object key){
+            if(!canHold(key))
+                return findLinear(root, hash, key);       //can't be ordered against the tree's keys, so fall back to a full walk
+
+            TreeNode<K, V> temp = root;
+
+            while(temp != null){
+                int compareValue = compare(hash, key, temp);
+                if(compareValue == 0){
+                    if(key.equals(temp.entry.key))
+                        return temp.entry;
+
+                    //compareTo ties with a key that isn't equal...the rotations can leave the key on either side
+                    Entry<K, V> found = findLinear(temp.left, hash, key);
+                    return found != null ? found : findLinear(temp.right, hash, key);
                 }
+
+                temp = compareValue < 0 ? temp.left : temp.right;
             }
+
+            return null;
+        }
+
+        //adds an entry whose key isn't already in the tree
+        public void add(Entry<K, V> entry){
+            root = add(root, entry);
+            size++;
+        }
+
+        public Entry<K, V> remove(int hash, Object key){
+            Entry<K, V> found = find(hash, key);
+            if(found == null)
+                return null;
+
+            root = remove(root, found);
+            size--;
+            return found;
+        }
+
+        //in-order copy of the entries
+        public LinkedList<Entry<K, V>> entries(){
+            LinkedList<Entry<K, V>> entries = new LinkedList<>();
+            inOrder(root, entries);
+            return entries;
+        }
+
+        private void inOrder(TreeNode<K, V> node, LinkedList<Entry<K, V>> trav){
+            if(node != null){
+                inOrder(node.left, trav);
+                trav.add(node.entry);
+                inOrder(node.right, trav);
+            }
+        }
+
+        private Entry<K, V> findLinear(TreeNode<K, V> node, int hash, Object key){
+            if(node == null)
+                return null;
+            if(matches(node.entry, hash, key))
+                return node.entry;
+
+            Entry<K, V> found = findLinear(node.left, hash, key);
+            return found != null ? found : findLinear(node.right, hash, key);
+        }
+
+        @SuppressWarnings("unchecked")
+        private int compare(int hash, Object key, TreeNode<K, V> node){
+            if(hash != node.entry.hash)
+                return hash < node.entry.hash ? -1 : 1;
+            return ((Comparable<Object>) key).compareTo(node.entry.key);
+        }
+
+        private TreeNode<K, V> add(TreeNode<K, V> node, Entry<K, V> entry){
+            if(node == null)
+                return new TreeNode<>(entry);
+
+            if(compare(entry.hash, entry.key, node) < 0)
+                node.left = add(node.left, entry);
+            else
+                node.right = add(node.right, entry);
+
+            return rebalance(node);
+        }
+
+        //removes the node holding exactly this entry...ties are told apart by identity, like find() does with equals
+        private TreeNode<K, V> remove(TreeNode<K, V> node, Entry<K, V> entry){
+            int compareValue = compare(entry.hash, entry.key, node);
+
+            if(compareValue < 0)
+                node.left = remove(node.left, entry);
+            else if(compareValue > 0)
+                node.right = remove(node.right, entry);
+            else if(node.entry != entry){
+                if(holds(node.left, entry))
+                    node.left = remove(node.left, entry);
+                else
+                    node.right = remove(node.right, entry);
+            }
+            else {
+                if(node.left == null)           //no children or one child...the child takes the node's place
+                    return node.right;
+                if(node.right == null)
+                    return node.left;
+
+                TreeNode<K, V> replacement = node.right;        //two children...pull up the smallest node of the right subtree
+                while(replacement.left != null)
+                    replacement = replacement.left;
+
+                node.right = remove(node.right, replacement.entry);
+                node.entry = replacement.entry;
+            }
+
+            return rebalance(node);
+        }
+
+        private static boolean holds(TreeNode<?, ?> node, Entry<?, ?> entry){
+            return node != null && (node.entry == entry || holds(node.left, entry) || holds(node.right, entry));
+        }
+
+        private TreeNode<K, V> rebalance(TreeNode<K, V> node){
+            updateHeight(node);
+            int balance = height(node.left) - height(node.right);
+
+            if(balance > 1){
+                if(height(node.left.left) < height(node.left.right))        //double rotation...left right
+                    node.left = leftRotation(node.left);
+                return rightRotation(node);
+            }
+            if(balance < -1){
+                if(height(node.right.right) < height(node.right.left))      //double rotation...right left
+                    node.right = rightRotation(node.right);
+                return leftRotation(node);
+            }
+
+            return node;
+        }
+
+        private TreeNode<K, V> rightRotation(TreeNode<K, V> node){
+            TreeNode<K, V> pivot = node.left;
+            node.left = pivot.right;
+            pivot.right = node;
+
+            updateHeight(node);
+            updateHeight(pivot);
+            return pivot;
+        }
+
+        private TreeNode<K, V> leftRotation(TreeNode<K, V> node){
+            TreeNode<K, V> pivot = node.right;
+            node.right = pivot.left;
+            pivot.left = node;
+
+            updateHeight(node);
+            updateHeight(pivot);
+            return pivot;
+        }
+
+        private static int height(TreeNode<?, ?> node){
+            return node == null ? -1 : node.height;
+        }
+
+        private static void updateHeight(TreeNode<?, ?> node){
+            node.height = Math.max(height(node.left), height(node.right)) + 1;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,239 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/*
+    A binary heap that also remembers where every element sits in it. Every time an element moves during a sift, its
+    new index is written into a HashMap from element to index. That costs a little on every add/poll, and in return:
+
+    - contains() is O(1) instead of a scan of the heap
+    - remove(T) is O(log n)...the element is found through the map instead of a scan
+    - an element whose priority changed can be moved to its new place in O(log n) with decreaseKey/increaseKey/update,
+      without removing and re-adding it
+
+    Every element can only be in the queue once (by equals). Because the map is keyed by the elements, their
+    equals/hashCode must not depend on the priority...ex. a job compared by deadline but equal by id.
+ */
+
+public class IndexedPriorityQueue<T> implements Queue<T>, Iterable<T> {
+
+    private final ArrayList<T> heap;
+    private final HashMap<T, Integer> positions;        //element -> its index in heap
+    private final Comparator<? super T> order;          //the element that compares smallest is on top
+    private int modCount;
+
+    //elements have to be Comparable, the smallest is on top
+    public IndexedPriorityQueue(){
+        this(false);
+    }
+
+    //elements have to be Comparable...if maxOnTop, the largest is on top
+    @SuppressWarnings("unchecked")
+    public IndexedPriorityQueue(boolean maxOnTop){
+        this((Comparator<? super T>) (maxOnTop ? Comparator.reverseOrder() : Comparator.naturalOrder()));
+    }
+
+    public IndexedPriorityQueue(Comparator<? super T> order){
+        if(order == null)
+            throw new NullPointerException();
+
+        this.order = order;
+        heap = new ArrayList<>();
+        positions = new HashMap<>();
+    }
+
+    //adds the element...throws an IllegalArgumentException if it's already in the queue
+    @Override
+    public void add(T element){
+        if(element == null)
+            throw new NullPointerException();
+        if(positions.containsKey(element))
+            throw new IllegalArgumentException("Element is already in the queue: " + element);
+
+        heap.add(element);
+        siftUp(heap.size() - 1, element);
+        modCount++;
+    }
+
+    @Override
+    public void clear(){
+        heap.clear();
+        positions.clear();
+        modCount++;
+    }
+
+    @Override
+    public boolean contains(T element){
+        return positions.containsKey(element);
+    }
+
+    //same as peek, except an empty queue throws an exception
+    @Override
+    public T element(){
+        if(heap.isEmpty())
+            throw new NoSuchElementException();
+        return heap.get(0);
+    }
+
+    @Override
+    public boolean isEmpty(){ return heap.isEmpty(); }
+
+    //returns but doesn't remove the element on top, or null if the queue is empty
+    @Override
+    public T peek(){
+        return heap.isEmpty() ? null : heap.get(0);
+    }
+
+    //removes and returns the element on top, or null if the queue is empty
+    @Override
+    public T poll(){
+        return heap.isEmpty() ? null : removeAt(0);
+    }
+
+    //same as poll, except an empty queue throws an exception
+    @Override
+    public T remove(){
+        if(heap.isEmpty())
+            throw new NoSuchElementException();
+        return removeAt(0);
+    }
+
+    //O(log n)...the element's index comes from the map
+    @Override
+    public boolean remove(T element){
+        Integer index = positions.get(element);
+        if(index == null)
+            return false;
+
+        removeAt(index);
+        return true;
+    }
+
+    //call after the element's priority changed so that it now belongs closer to the top (a smaller key in the
+    //default min-heap)...moves it up to its new place
+    public void decreaseKey(T element){
+        int index = indexOf(element);
+        siftUp(index, heap.get(index));
+    }
+
+    //call after the element's priority changed so that it now belongs further from the top...moves it down
+    public void increaseKey(T element){
+        int index = indexOf(element);
+        siftDown(index, heap.get(index));
+    }
+
+    //call after the element's priority changed in either direction
+    public void update(T element){
+        int index = indexOf(element);
+        T toSift = heap.get(index);
+
+        if(index > 0 && order.compare(toSift, heap.get((index - 1) / 2)) < 0)
+            siftUp(index, toSift);
+        else
+            siftDown(index, toSift);
+    }
+
+    @Override
+    public int size(){ return heap.size(); }
+
+    //walks the heap array as is, so the elements come out in no particular order
+    @Override
+    public Iterator<T> iterator(){
+        return new Iterator<T>() {
+            private int index = 0;
+            private final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() { return index < heap.size(); }
+
+            @Override
+            public T next() {
+                if(modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                if(!hasNext())
+                    throw new NoSuchElementException();
+                return heap.get(index++);
+            }
+        };
+    }
+
+    //lists the elements in heap order (the top comes first, the rest in no particular order)
+    @Override
+    public String toString(){
+        return heap.toString();
+    }
+
+    private int indexOf(T element){
+        Integer index = positions.get(element);
+        if(index == null)
+            throw new NoSuchElementException("Element is not in the queue: " + element);
+        return index;
+    }
+
+    //moves the last element into the hole at index, then sifts it whichever way it has to go
+    private T removeAt(int index){
+        T toReturn = heap.get(index);
+        positions.remove(toReturn);
+
+        T last = heap.remove(heap.size() - 1);
+        if(index < heap.size()){
+            if(index > 0 && order.compare(last, heap.get((index - 1) / 2)) < 0)
+                siftUp(index, last);
+            else
+                siftDown(index, last);
+        }
+
+        modCount++;
+        return toReturn;
+    }
+
+    //moves parents down into the hole at index until toSift fits, then drops toSift in...every element that moves
+    //gets its new index recorded
+    private void siftUp(int index, T toSift){
+        while(index > 0){
+            int parent = (index - 1) / 2;
+            T parentElement = heap.get(parent);
+            if(order.compare(toSift, parentElement) >= 0)
+                break;
+
+            place(index, parentElement);
+            index = parent;
+        }
+
+        place(index, toSift);
+    }
+
+    private void siftDown(int index, T toSift){
+        int size = heap.size();
+
+        while(true){
+            int child = 2*index + 1;
+            if(child >= size)
+                break;
+
+            T childElement = heap.get(child);
+            if(child + 1 < size){
+                T right = heap.get(child + 1);
+                if(order.compare(right, childElement) < 0){
+                    child++;
+                    childElement = right;
+                }
+            }
+
+            if(order.compare(toSift, childElement) <= 0)
+                break;
+
+            place(index, childElement);
+            index = child;
+        }
+
+        place(index, toSift);
+    }
+
+    private void place(int index, T element){
+        heap.set(index, element);
+        positions.put(element, index);
+    }
+}
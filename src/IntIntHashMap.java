@@ -0,0 +1,274 @@
+/*
+    A HashMap specialized for int keys and int values. Keys and values live in two int arrays, so nothing gets boxed
+    and no Entry objects are created. It uses the same layout as OpenHashMap...a power-of-two table, a spread hash
+    and linear probing with backward shift deletion.
+
+    The key 0 marks an empty slot inside the table, so an entry with the key 0 is kept off to the side in its own
+    fields. Methods that would normally return null for a missing key return 0 instead.
+ */
+
+public class IntIntHashMap {
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private int[] keys;             //0 means the slot is empty
+    private int[] values;
+    private float maxLoadFactor;
+    private int capacity;           //always a power of two
+    private int mask;
+    private int items;              //includes the zero key if it's present
+
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    public IntIntHashMap(){
+        this(16, 0.75F);
+    }
+
+    public IntIntHashMap(int initialCapacity){
+        this(initialCapacity, 0.75F);
+    }
+
+    public IntIntHashMap(int initialCapacity, float loadFactor){
+        if(initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        if(loadFactor <= 0 || loadFactor >= 1 || Float.isNaN(loadFactor))
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+
+        maxLoadFactor = loadFactor;
+        items = 0;
+        allocate(OpenHashMap.tableSizeFor(initialCapacity));
+    }
+
+    //returns the previous value of the key, or 0 if it wasn't present
+    public int put(int key, int value){
+        if(key == 0){
+            int toReturn = zeroValue;
+            if(!hasZeroKey){
+                hasZeroKey = true;
+                items++;
+            }
+            zeroValue = value;
+            return toReturn;
+        }
+
+        int i = slotFor(key);
+        if(keys[i] == key){
+            int toReturn = values[i];
+            values[i] = value;
+            return toReturn;
+        }
+
+        insertAt(i, key, value);
+        return 0;
+    }
+
+    //adds increment to the key's value (a missing key counts as 0) and returns the new value
+    public int addTo(int key, int increment){
+        if(key == 0){
+            if(!hasZeroKey){
+                hasZeroKey = true;
+                items++;
+            }
+            zeroValue += increment;
+            return zeroValue;
+        }
+
+        int i = slotFor(key);
+        if(keys[i] == key){
+            values[i] += increment;
+            return values[i];
+        }
+
+        insertAt(i, key, increment);
+        return increment;
+    }
+
+    public int get(int key){
+        return getOrDefault(key, 0);
+    }
+
+    public int getOrDefault(int key, int defaultValue){
+        if(key == 0)
+            return hasZeroKey ? zeroValue : defaultValue;
+
+        int i = slotFor(key);
+        return keys[i] == key ? values[i] : defaultValue;
+    }
+
+    public boolean containsKey(int key){
+        if(key == 0)
+            return hasZeroKey;
+        return keys[slotFor(key)] == key;
+    }
+
+    public boolean containsValue(int value){
+        if(hasZeroKey && zeroValue == value)
+            return true;
+
+        for(int i=0; i<capacity; i++){
+            if(keys[i] != 0 && values[i] == value)
+                return true;
+        }
+        return false;
+    }
+
+    //returns the value that was removed, or 0 if the key wasn't present
+    public int remove(int key){
+        if(key == 0){
+            if(!hasZeroKey)
+                return 0;
+
+            int toReturn = zeroValue;
+            hasZeroKey = false;
+            zeroValue = 0;
+            items--;
+            return toReturn;
+        }
+
+        int i = slotFor(key);
+        if(keys[i] != key)
+            return 0;
+
+        int toReturn = values[i];
+        deleteSlot(i);
+        items--;
+        return toReturn;
+    }
+
+    public void clear(){
+        for(int i=0; i<capacity; i++){
+            keys[i] = 0;
+            values[i] = 0;
+        }
+
+        hasZeroKey = false;
+        zeroValue = 0;
+        items = 0;
+    }
+
+    public int size(){ return items; }
+
+    public boolean isEmpty(){ return items == 0; }
+
+    //copies the keys into a new array...the order matches values()
+    public int[] keys(){
+        int[] toReturn = new int[items];
+        int n = 0;
+
+        if(hasZeroKey)
+            toReturn[n++] = 0;
+        for(int i=0; i<capacity; i++){
+            if(keys[i] != 0)
+                toReturn[n++] = keys[i];
+        }
+
+        return toReturn;
+    }
+
+    //copies the values into a new array...the order matches keys()
+    public int[] values(){
+        int[] toReturn = new int[items];
+        int n = 0;
+
+        if(hasZeroKey)
+            toReturn[n++] = zeroValue;
+        for(int i=0; i<capacity; i++){
+            if(keys[i] != 0)
+                toReturn[n++] = values[i];
+        }
+
+        return toReturn;
+    }
+
+    @Override
+    public String toString(){
+        if(items == 0)
+            return "{}";
+
+        StringBuilder toReturn = new StringBuilder("{");
+
+        if(hasZeroKey)
+            toReturn.append(0).append("=").append(zeroValue).append(", ");
+        for(int i=0; i<capacity; i++){
+            if(keys[i] != 0)
+                toReturn.append(keys[i]).append("=").append(values[i]).append(", ");
+        }
+
+        toReturn.setLength(toReturn.length() - 2);
+        return toReturn.append("}").toString();
+    }
+
+    //returns the slot holding the key, or the empty slot where it would be inserted
+    private int slotFor(int key){
+        int i = hash(key) & mask;
+        while(keys[i] != 0 && keys[i] != key)
+            i = (i + 1) & mask;
+        return i;
+    }
+
+    private void insertAt(int i, int key, int value){
+        //grow before the key goes in, so a table that can't grow any more is never left without an empty slot
+        if(items + 1 > capacity * maxLoadFactor){
+            rehash(capacity << 1);
+            i = slotFor(key);
+        }
+
+        keys[i] = key;
+        values[i] = value;
+        items++;
+    }
+
+    //same backward shift as OpenHashMap.deleteSlot()
+    private void deleteSlot(int i){
+        int hole = i;
+        int j = (i + 1) & mask;
+
+        while(keys[j] != 0){
+            int home = hash(keys[j]) & mask;
+
+            if(((j - home) & mask) >= ((j - hole) & mask)){
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+
+        keys[hole] = 0;
+        values[hole] = 0;
+    }
+
+    private void rehash(int newCapacity){
+        if(capacity == MAX_CAPACITY)
+            throw new IllegalStateException("Map is full: " + items + " entries");
+
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+
+        allocate(newCapacity);
+
+        for(int j=0; j<oldKeys.length; j++){
+            if(oldKeys[j] != 0){
+                int i = hash(oldKeys[j]) & mask;
+                while(keys[i] != 0)
+                    i = (i + 1) & mask;
+
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private void allocate(int newCapacity){
+        capacity = newCapacity;
+        mask = newCapacity - 1;
+        keys = new int[newCapacity];
+        values = new int[newCapacity];
+    }
+
+    //sequential ints would otherwise land in sequential slots and form long probe runs, so scramble them first
+    private static int hash(int key){
+        return OpenHashMap.spread(key * 0x9E3779B9);
+    }
+}
@@ -0,0 +1,121 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/*
+    A heap of plain ints in an int[]...for when the priority is the whole element, ex. a top-K over ints or indices.
+    No boxing and no Comparator.
+
+    The smallest int is on top, or the largest if maxOnTop. A MaxOnTop heap stores every int bit-flipped (~x is
+    smaller exactly when x is larger, and unlike -x it can't overflow), so the direction is never checked during a sift.
+    The heap is 4-ary, like LongPriorityQueue.
+ */
+
+public class IntPriorityQueue {
+
+    private static final int ARITY = 4;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] heap;             //stored flipped if maxOnTop
+    private int size;
+    private final int flip;         //0, or all ones if maxOnTop
+
+    public IntPriorityQueue(){
+        this(false);
+    }
+
+    public IntPriorityQueue(boolean maxOnTop){
+        this(DEFAULT_CAPACITY, maxOnTop);
+    }
+
+    public IntPriorityQueue(int initialCapacity, boolean maxOnTop){
+        if(initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+
+        heap = new int[Math.max(1, initialCapacity)];
+        flip = maxOnTop ? -1 : 0;
+    }
+
+    public void add(int element){
+        if(size == heap.length)
+            heap = Arrays.copyOf(heap, size + (size >> 1) + 1);
+
+        siftUp(size++, element ^ flip);
+    }
+
+    //returns but doesn't remove the int on top...throws an exception if the queue is empty
+    public int peek(){
+        if(size == 0)
+            throw new NoSuchElementException();
+        return heap[0] ^ flip;
+    }
+
+    //removes and returns the int on top...throws an exception if the queue is empty
+    public int poll(){
+        if(size == 0)
+            throw new NoSuchElementException();
+
+        int toReturn = heap[0] ^ flip;
+        size--;
+        if(size != 0)
+            siftDown(0, heap[size]);
+        return toReturn;
+    }
+
+    //there's nothing to let go of in an int[], so this is O(1)
+    public void clear(){
+        size = 0;
+    }
+
+    public boolean isEmpty(){ return size == 0; }
+
+    public int size(){ return size; }
+
+    //the ints in heap order (the top comes first, the rest in no particular order)
+    public int[] toArray(){
+        int[] toReturn = Arrays.copyOf(heap, size);
+        for(int i=0; i<size; i++)
+            toReturn[i] ^= flip;
+        return toReturn;
+    }
+
+    @Override
+    public String toString(){
+        return Arrays.toString(toArray());
+    }
+
+    private void siftUp(int index, int element){
+        while(index > 0){
+            int parent = (index - 1) / ARITY;
+            if(element >= heap[parent])
+                break;
+
+            heap[index] = heap[parent];
+            index = parent;
+        }
+
+        heap[index] = element;
+    }
+
+    private void siftDown(int index, int element){
+        while(true){
+            int firstChild = ARITY*index + 1;
+            if(firstChild >= size)
+                break;
+
+            int lastChild = Math.min(firstChild + ARITY, size);
+            int best = firstChild;
+            for(int child = firstChild + 1; child < lastChild; child++){
+                if(heap[child] < heap[best])
+                    best = child;
+            }
+
+            if(heap[best] >= element)
+                break;
+
+            heap[index] = heap[best];
+            index = best;
+        }
+
+        heap[index] = element;
+    }
+}
@@ -0,0 +1,90 @@
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+//a Stack specialized for int values...they're stored in a int[] directly, so pushing never boxes anything
+public class IntStack {
+
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private int[] stack;
+    private int size;
+
+    public IntStack(){
+        this(16);
+    }
+
+    public IntStack(int initialCapacity){
+        if(initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+
+        stack = new int[Math.max(initialCapacity, 1)];
+        size = 0;
+    }
+
+    public boolean empty(){
+        return size == 0;
+    }
+
+    public boolean isEmpty(){ return size == 0; }
+
+    public int size(){ return size; }
+
+    public int peek(){
+        if(empty())
+            throw new EmptyStackException();
+        return stack[size - 1];
+    }
+
+    public int pop(){
+        if(empty())
+            throw new EmptyStackException();
+        return stack[--size];
+    }
+
+    public void push(int element){
+        if(size == stack.length)
+            grow();
+
+        stack[size++] = element;
+    }
+
+    //1-based distance of the value from the top of the stack (the top itself is 1), or -1 if it isn't present
+    public int search(int element){
+        for(int i=size-1; i>=0; i--){
+            if(stack[i] == element)
+                return size - i;
+        }
+
+        return -1;
+    }
+
+    //nothing has to be cleared out of the array, since it holds no references
+    public void clear(){
+        size = 0;
+    }
+
+    //copies the values into a new array, bottom of the stack first
+    public int[] toArray(){
+        return Arrays.copyOf(stack, size);
+    }
+
+    //lists the values from the top down
+    @Override
+    public String toString(){
+        if(size == 0)
+            return "[]";
+
+        StringBuilder toReturn = new StringBuilder("[");
+        for(int i=size-1; i>0; i--)
+            toReturn.append(stack[i]).append(", ");
+
+        return toReturn.append(stack[0]).append("]").toString();
+    }
+
+    private void grow(){
+        if(stack.length == MAX_CAPACITY)
+            throw new IllegalStateException("Stack is full");
+
+        stack = Arrays.copyOf(stack, (int) Math.min((long) stack.length << 1, MAX_CAPACITY));
+    }
+}
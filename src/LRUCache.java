@@ -0,0 +1,537 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+/*
+    A bounded cache built on top of HashMap. The HashMap finds an entry's node in O(1), and the nodes are threaded
+    on doubly linked lists in access order, so the least recently used entry is always at the head and can be
+    evicted in O(1) when the cache is over its limit.
+
+    The limit is either a number of entries, or a total weight where a weigher decides what each entry weighs.
+
+    With frequencyAdmission turned on the cache follows the W-TinyLFU policy:
+        - new entries go into a small LRU "window" (about 1% of the cache)
+        - entries pushed out of the window only get into the main LRU region if they have been used more often than
+          the entry they would push out of it, which is judged by a small count-min sketch of recent key frequencies
+        - this keeps one-off keys (scans, crawlers...) from flushing out entries that are used all the time
+
+    Entries can also expire a fixed time after they are written, and a loader can be set to fill in missing keys.
+    Expired entries are removed lazily when they're looked up, or all at once by cleanUp().
+ */
+
+public class LRUCache<K, V> implements Map<K, V> {
+
+    private static class Node<K, V> {
+        private final K key;
+        private V value;
+        private int weight;
+        private long expiresAt;         //System.nanoTime() deadline, 0 if the entry never expires
+        private boolean inWindow;
+
+        private Node<K, V> prev;
+        private Node<K, V> next;
+
+        public Node(K key, V value){
+            this.key = key;
+            this.value = value;
+        }
+
+        public String toString(){
+            return key + "=" + value;
+        }
+    }
+
+    //an entry handed out by entrySet()...setValue goes through put(), so the entry is re-weighed and counts as a write
+    private class CacheEntry implements Map.Entry<K, V> {
+        private final K key;
+        private V value;
+
+        CacheEntry(K key, V value){
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() { return key; }
+
+        @Override
+        public V getValue() { return value; }
+
+        @Override
+        public V setValue(V value) {
+            V toReturn = put(key, value);
+            this.value = value;
+            return toReturn;
+        }
+
+        public String toString(){
+            return key + "=" + value;
+        }
+    }
+
+    //a doubly linked list of nodes...head is the least recently used, tail the most recently used
+    private static class AccessOrder<K, V> {
+        private Node<K, V> head;
+        private Node<K, V> tail;
+        private long weight;
+
+        void addLast(Node<K, V> node){
+            node.prev = tail;
+            node.next = null;
+
+            if(tail == null)
+                head = node;
+            else
+                tail.next = node;
+            tail = node;
+
+            weight += node.weight;
+        }
+
+        void unlink(Node<K, V> node){
+            if(node.prev == null)
+                head = node.next;
+            else
+                node.prev.next = node.next;
+
+            if(node.next == null)
+                tail = node.prev;
+            else
+                node.next.prev = node.prev;
+
+            node.prev = node.next = null;
+            weight -= node.weight;
+        }
+
+        void moveToLast(Node<K, V> node){
+            if(node != tail){
+                unlink(node);
+                addLast(node);
+            }
+        }
+    }
+
+    private final HashMap<K, Node<K, V>> nodes;
+    private final AccessOrder<K, V> window;         //only used when frequencyAdmission is on
+    private final AccessOrder<K, V> main;
+
+    private final long maximumWeight;
+    private final long maximumWindowWeight;
+    private final ToIntBiFunction<? super K, ? super V> weigher;
+    private final FrequencySketch sketch;           //null when frequencyAdmission is off
+
+    private long expireAfterWriteMillis;            //0 means entries don't expire unless put() is given a time to live
+    private Function<? super K, ? extends V> loader;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long loadCount;
+
+    public LRUCache(int maximumSize){
+        this(maximumSize, false);
+    }
+
+    public LRUCache(int maximumSize, boolean frequencyAdmission){
+        this(maximumSize, (key, value) -> 1, frequencyAdmission);
+    }
+
+    public LRUCache(long maximumWeight, ToIntBiFunction<? super K, ? super V> weigher, boolean frequencyAdmission){
+        if(maximumWeight <= 0)
+            throw new IllegalArgumentException("Illegal maximum weight: " + maximumWeight);
+        if(weigher == null)
+            throw new NullPointerException();
+
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        nodes = new HashMap<>();
+        window = new AccessOrder<>();
+        main = new AccessOrder<>();
+
+        if(frequencyAdmission){
+            maximumWindowWeight = Math.max(1, maximumWeight / 100);
+            sketch = new FrequencySketch();         //sized by the number of entries as the cache fills, not by weight
+        }
+        else {
+            maximumWindowWeight = 0;
+            sketch = null;
+        }
+    }
+
+    //every entry written from now on expires this long after it was written...0 turns expiry off
+    public void setExpireAfterWrite(long millis){
+        if(millis < 0)
+            throw new IllegalArgumentException("Illegal expiry: " + millis);
+        expireAfterWriteMillis = millis;
+    }
+
+    //called by get() to compute the value of a missing key...a null result is simply not cached
+    public void setLoader(Function<? super K, ? extends V> loader){
+        this.loader = loader;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Node<K, V> node = liveNode(key);
+
+        if(node != null){
+            hitCount++;
+            recordAccess(node);
+            return node.value;
+        }
+
+        missCount++;
+        if(loader == null)
+            return null;
+
+        V loaded = loader.apply((K) key);
+        loadCount++;
+        if(loaded != null)
+            put((K) key, loaded);
+
+        return loaded;
+    }
+
+    @Override
+    public V put(K key, V value){
+        return put(key, value, expireAfterWriteMillis);
+    }
+
+    //same as put(key, value) but this entry expires timeToLiveMillis after now...0 means it never expires
+    public V put(K key, V value, long timeToLiveMillis){
+        if(key == null || value == null)
+            throw new NullPointerException();
+        if(timeToLiveMillis < 0)
+            throw new IllegalArgumentException("Illegal time to live: " + timeToLiveMillis);
+
+        long expiresAt = timeToLiveMillis == 0 ? 0 : System.nanoTime() + timeToLiveMillis * 1_000_000L;
+        if(expiresAt == 0 && timeToLiveMillis != 0)
+            expiresAt = 1;          //0 is reserved for "never"
+
+        int weight = weigher.applyAsInt(key, value);
+        if(weight < 0)
+            throw new IllegalArgumentException("Negative weight for key " + key);
+
+        if(sketch != null)
+            sketch.increment(key);
+
+        Node<K, V> node = liveNode(key);
+        if(node != null){
+            //re-weighing an existing entry: take it off its list, update it, and put it back at the tail
+            V toReturn = node.value;
+            AccessOrder<K, V> list = node.inWindow ? window : main;
+
+            list.unlink(node);
+            node.value = value;
+            node.weight = weight;
+            node.expiresAt = expiresAt;
+            list.addLast(node);
+
+            evictIfNeeded();
+            return toReturn;
+        }
+
+        node = new Node<>(key, value);
+        node.weight = weight;
+        node.expiresAt = expiresAt;
+        nodes.put(key, node);
+
+        if(sketch != null){
+            sketch.ensureCapacity(nodes.size());
+            node.inWindow = true;
+            window.addLast(node);
+        }
+        else
+            main.addLast(node);
+
+        evictIfNeeded();
+        return null;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        if(m != null){
+            for(Map.Entry<? extends K, ? extends V> entry : m.entrySet()){
+                put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public V remove(Object key){
+        Node<K, V> node = nodes.remove(key);
+        if(node == null)
+            return null;
+
+        (node.inWindow ? window : main).unlink(node);
+        return isExpired(node) ? null : node.value;
+    }
+
+    @Override
+    public void clear() {
+        nodes.clear();
+        window.head = window.tail = null;
+        window.weight = 0;
+        main.head = main.tail = null;
+        main.weight = 0;
+    }
+
+    //containsKey doesn't count as a use of the entry, so it doesn't change the eviction order or the statistics
+    @Override
+    public boolean containsKey(Object key) {
+        return liveNode(key) != null;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for(Node<K, V> node : nodes.values()){
+            if(!isExpired(node) && node.value.equals(value))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int size(){ return nodes.size(); }
+
+    @Override
+    public boolean isEmpty() { return nodes.isEmpty(); }
+
+    //total weight of the entries in the cache...the same as size() when no weigher was given
+    public long weightedSize(){ return window.weight + main.weight; }
+
+    //removes every expired entry now instead of waiting for them to be looked up
+    public void cleanUp(){
+        removeExpired(window);
+        removeExpired(main);
+    }
+
+    //the views below are copies, ordered from the next entry to be evicted to the most recently used one
+
+    @Override
+    public Set<K> keySet() {
+        Set<K> keys = new LinkedHashSet<>();
+        for(Node<K, V> node : liveNodes())
+            keys.add(node.key);
+        return keys;
+    }
+
+    @Override
+    public Collection<V> values() {
+        Collection<V> values = new ArrayList<>();
+        for(Node<K, V> node : liveNodes())
+            values.add(node.value);
+        return values;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        Set<Map.Entry<K, V>> entries = new LinkedHashSet<>();
+        for(Node<K, V> node : liveNodes())
+            entries.add(new CacheEntry(node.key, node.value));
+        return entries;
+    }
+
+    public long getHitCount(){ return hitCount; }
+
+    public long getMissCount(){ return missCount; }
+
+    public long getEvictionCount(){ return evictionCount; }
+
+    public long getLoadCount(){ return loadCount; }
+
+    public double hitRate(){
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    @Override
+    public String toString(){
+        return liveNodes().toString().replace('[', '{').replace(']', '}');
+    }
+
+    //looks up a node and drops it on the spot if it has expired
+    private Node<K, V> liveNode(Object key){
+        Node<K, V> node = nodes.get(key);
+
+        if(node != null && isExpired(node)){
+            nodes.remove(key);
+            (node.inWindow ? window : main).unlink(node);
+            evictionCount++;
+            return null;
+        }
+
+        return node;
+    }
+
+    private boolean isExpired(Node<K, V> node){
+        return node.expiresAt != 0 && node.expiresAt - System.nanoTime() <= 0;
+    }
+
+    private void recordAccess(Node<K, V> node){
+        if(sketch != null)
+            sketch.increment(node.key);
+        (node.inWindow ? window : main).moveToLast(node);
+    }
+
+    private void evictIfNeeded(){
+        if(sketch == null){             //plain LRU
+            while(weightedSize() > maximumWeight && main.head != null)
+                evict(main.head, main);
+            return;
+        }
+
+        //W-TinyLFU: whatever overflows the window becomes a candidate for the main region
+        long maximumMainWeight = maximumWeight - maximumWindowWeight;
+
+        while(window.weight > maximumWindowWeight && window.head != null){
+            Node<K, V> candidate = window.head;
+            window.unlink(candidate);
+            candidate.inWindow = false;
+
+            if(candidate.weight > maximumMainWeight){
+                evict(candidate, null);
+                continue;
+            }
+
+            //the candidate has to be used more often than every entry it would push out of the main region
+            boolean admit = true;
+            long freed = maximumMainWeight - main.weight;
+            Node<K, V> victim = main.head;
+
+            while(freed < candidate.weight && victim != null){
+                if(sketch.frequency(candidate.key) <= sketch.frequency(victim.key)){
+                    admit = false;
+                    break;
+                }
+                freed += victim.weight;
+                victim = victim.next;
+            }
+
+            if(!admit){
+                evict(candidate, null);
+                continue;
+            }
+
+            while(maximumMainWeight - main.weight < candidate.weight)
+                evict(main.head, main);
+            main.addLast(candidate);
+        }
+
+        //an entry already in the main region can outgrow it when put() re-weighs it
+        while(main.weight > maximumMainWeight && main.head != null)
+            evict(main.head, main);
+    }
+
+    //list is the list the node is still on, or null if it has already been unlinked
+    private void evict(Node<K, V> node, AccessOrder<K, V> list){
+        if(list != null)
+            list.unlink(node);
+        nodes.remove(node.key);
+        evictionCount++;
+    }
+
+    private void removeExpired(AccessOrder<K, V> list){
+        Node<K, V> node = list.head;
+        while(node != null){
+            Node<K, V> next = node.next;
+            if(isExpired(node))
+                evict(node, list);
+            node = next;
+        }
+    }
+
+    private ArrayList<Node<K, V>> liveNodes(){
+        ArrayList<Node<K, V>> live = new ArrayList<>();
+        addLiveNodes(main, live);
+        addLiveNodes(window, live);
+        return live;
+    }
+
+    private void addLiveNodes(AccessOrder<K, V> list, ArrayList<Node<K, V>> live){
+        for(Node<K, V> node = list.head; node != null; node = node.next){
+            if(!isExpired(node))
+                live.add(node);
+        }
+    }
+
+    /*
+        A count-min sketch of how often keys were used recently. Each key bumps one 4-bit counter in each of four rows,
+        and its frequency is the smallest of those counters, so collisions can only make a key look more popular.
+        Once enough increments have happened every counter is halved, so the sketch forgets about old popularity.
+     */
+    private static class FrequencySketch {
+        private static final int ROWS = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = { 0x97CB3127, 0xB5A9F3C1, 0xC2B2AE35, 0x27D4EB2F };
+
+        private static final int MIN_WIDTH = 16;
+        private static final int MAX_WIDTH = 1 << 24;
+
+        private byte[][] table;
+        private int mask;
+        private int sampleSize;             //number of increments before every counter is halved
+        private int additions;
+
+        public FrequencySketch(){
+            allocate(MIN_WIDTH);
+        }
+
+        //widens the table once there are more entries than counters per row...the counts start over, which only
+        //happens a logarithmic number of times while the cache fills up
+        public void ensureCapacity(int entries){
+            if(entries > table[0].length && table[0].length < MAX_WIDTH)
+                allocate(OpenHashMap.tableSizeFor(Math.min(entries, MAX_WIDTH)));
+        }
+
+        private void allocate(int width){
+            table = new byte[ROWS][width];
+            mask = width - 1;
+            sampleSize = 10 * width;
+            additions = 0;
+        }
+
+        public int frequency(Object key){
+            int hash = key.hashCode();
+            int min = MAX_COUNT;
+
+            for(int row=0; row<ROWS; row++)
+                min = Math.min(min, table[row][indexOf(hash, row)]);
+
+            return min;
+        }
+
+        public void increment(Object key){
+            int hash = key.hashCode();
+            boolean changed = false;
+
+            for(int row=0; row<ROWS; row++){
+                int i = indexOf(hash, row);
+                if(table[row][i] < MAX_COUNT){
+                    table[row][i]++;
+                    changed = true;
+                }
+            }
+
+            if(changed && ++additions >= sampleSize)
+                halve();
+        }
+
+        private void halve(){
+            for(byte[] row : table){
+                for(int i=0; i<row.length; i++)
+                    row[i] >>= 1;
+            }
+            additions /= 2;
+        }
+
+        private int indexOf(int hash, int row){
+            int h = hash * SEEDS[row];
+            return OpenHashMap.spread(h) & mask;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/*
+    A HashMap that also threads its entries on a doubly linked list, so it remembers an order:
+
+    - insertion order (the default)...re-putting an existing key doesn't move it
+    - access order...every get/put/compute of a key moves it to the end, so the front is the least recently used entry
+
+    Iterating (and toString, containsValue, clear) walks the list instead of the bucket array, so it costs O(size)
+    no matter how big the table has grown. The table itself works exactly like HashMap's, and resizing never touches
+    the list.
+ */
+
+public class LinkedHashMap<K, V> extends HashMap<K, V> {
+
+    private static class LinkedEntry<K, V> extends HashMap.Entry<K, V> {
+        private LinkedEntry<K, V> before;
+        private LinkedEntry<K, V> after;
+
+        LinkedEntry(int hash, K key, V value){
+            super(hash, key, value);
+        }
+    }
+
+    //no field initializers below...HashMap's copy constructor already adds entries before they would run
+    private boolean accessOrder;
+    private LinkedEntry<K, V> head;         //eldest entry
+    private LinkedEntry<K, V> tail;         //youngest entry
+    private int modCount;                   //changes to the list, which is all the iterators below care about
+
+    public LinkedHashMap(){
+        super();
+    }
+
+    public LinkedHashMap(int initialCapacity){
+        super(initialCapacity);
+    }
+
+    public LinkedHashMap(int initialCapacity, float loadFactor){
+        super(initialCapacity, loadFactor);
+    }
+
+    public LinkedHashMap(int initialCapacity, float loadFactor, boolean accessOrder){
+        super(initialCapacity, loadFactor);
+        this.accessOrder = accessOrder;
+    }
+
+    //copy constructor...the entries keep the iteration order of m
+    public LinkedHashMap(Map<? extends K, ? extends V> m){
+        super(m);
+    }
+
+    //the threads of a parallel fill would link entries in no particular order (and race on the list), so this
+    //just falls back to a regular putAll
+    @Override
+    public void putAllParallel(Map<? extends K, ? extends V> m, int threads){
+        if(threads < 1)
+            throw new IllegalArgumentException("Illegal thread count: " + threads);
+        putAll(m);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for(LinkedEntry<K, V> e = head; e != null; e = e.after){
+            if(value.equals(e.getValue()))
+                return true;
+        }
+        return false;
+    }
+
+    //only the buckets that actually hold entries are cleared
+    @Override
+    public void clear() {
+        clearBuckets(entryIterator());
+
+        head = tail = null;
+        modCount++;
+    }
+
+    @Override
+    Entry<K, V> newEntry(int hash, K key, V value){
+        LinkedEntry<K, V> entry = new LinkedEntry<>(hash, key, value);
+        linkLast(entry);
+        modCount++;
+        return entry;
+    }
+
+    @Override
+    void entryAccessed(Entry<K, V> entry){
+        if(!accessOrder || entry == tail)
+            return;
+
+        LinkedEntry<K, V> e = (LinkedEntry<K, V>) entry;
+        unlink(e);
+        linkLast(e);
+        modCount++;
+    }
+
+    @Override
+    void entryRemoved(Entry<K, V> entry){
+        unlink((LinkedEntry<K, V>) entry);
+        modCount++;
+    }
+
+    private void linkLast(LinkedEntry<K, V> e){
+        e.before = tail;
+        e.after = null;
+
+        if(tail == null)
+            head = e;
+        else
+            tail.after = e;
+        tail = e;
+    }
+
+    private void unlink(LinkedEntry<K, V> e){
+        if(e.before == null)
+            head = e.after;
+        else
+            e.before.after = e.after;
+
+        if(e.after == null)
+            tail = e.before;
+        else
+            e.after.before = e.before;
+
+        e.before = e.after = null;
+    }
+
+    //walks the list from eldest to youngest...removing goes through the map, so the table and the list stay in sync
+    private class LinkedHashIterator {
+        private LinkedEntry<K, V> next;
+        private LinkedEntry<K, V> current;          //last entry returned, null once it's been removed
+        private int expectedModCount;
+
+        LinkedHashIterator(){
+            next = head;
+            expectedModCount = modCount;
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        LinkedEntry<K, V> nextEntry(){
+            if(modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if(next == null)
+                throw new NoSuchElementException();
+
+            current = next;
+            next = next.after;
+            return current;
+        }
+
+        public void remove() {
+            if(current == null)
+                throw new IllegalStateException();
+            if(modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+
+            LinkedHashMap.this.remove(current.getKey());
+
+            expectedModCount = modCount;
+            current = null;
+        }
+    }
+
+    private class EntryIterator extends LinkedHashIterator implements Iterator<Entry<K, V>> {
+        @Override
+        public Entry<K, V> next() { return nextEntry(); }
+    }
+
+    private class KeyIterator extends LinkedHashIterator implements Iterator<K> {
+        @Override
+        public K next() { return nextEntry().getKey(); }
+    }
+
+    private class ValueIterator extends LinkedHashIterator implements Iterator<V> {
+        @Override
+        public V next() { return nextEntry().getValue(); }
+    }
+
+    @Override
+    Iterator<Entry<K, V>> entryIterator(){ return new EntryIterator(); }
+
+    @Override
+    Iterator<K> keyIterator(){ return new KeyIterator(); }
+
+    @Override
+    Iterator<V> valueIterator(){ return new ValueIterator(); }
+}
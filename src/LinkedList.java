@@ -1,32 +1,50 @@
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.ListIterator;
 import java.util.NoSuchElementException;
 
+//the list is doubly linked and keeps a pointer to its last node, so both ends can be added to, read and removed from
+//in O(1), and walking to an index starts from whichever end is closer
 public class LinkedList<T> implements Queue<T>, Iterable<T> {
 
     private Node<T> head;
+    private Node<T> tail;
     private int size;
+    private int modCount;           //bumped on every structural change so list iterators can fail fast
 
 
     //CONSIDER THERE'S MAYBE MORE THAN ONE CONSTRUCTOR...
     public LinkedList(){     //constructor
         head = null;
+        tail = null;
         size = 0;
     }
 
     //abstract method from Iterable to override
     @Override
-    public LinkedListIterator<T> iterator() {
-        return new LinkedListIterator<T>(head);
+    public Iterator<T> iterator() {
+        return new LinkedListIterator();
     }
 
-    //Class for the iterator of this class
-    private static class LinkedListIterator<T> implements Iterator<T> {
-        private Node<T> node;
+    //a ListIterator starting at the front of the list
+    public ListIterator<T> listIterator(){
+        return listIterator(0);
+    }
 
-        public LinkedListIterator(Node<T> head){
-            node = head;
-        }
+    //a ListIterator whose first call to next() returns the element at index...it can walk in both directions and
+    //add, remove or replace elements where it stands, each in O(1)
+    public ListIterator<T> listIterator(int index){
+        isIndexInBounds(index, size);
+        return new LinkedListListIterator(index);
+    }
+
+    //Class for the iterator of this class...fails fast, since unlink() clears the next pointer of a removed node and
+    //iterating on past it would just stop early without a word
+    private class LinkedListIterator implements Iterator<T> {
+        private Node<T> node = head;
+        private Node<T> lastReturned;
+        private int expectedModCount = modCount;
 
         @Override
         public boolean hasNext() {
@@ -35,11 +53,123 @@ public class LinkedList<T> implements Queue<T>, Iterable<T> {
 
         @Override
         public T next() {
+            checkForComodification();
             if(!hasNext())
                 throw new NoSuchElementException();
-            T value = node.data;
+
+            lastReturned = node;
             node = node.next;
-            return value;
+            return lastReturned.data;
+        }
+
+        @Override
+        public void remove() {
+            checkForComodification();
+            if(lastReturned == null)
+                throw new IllegalStateException();
+
+            unlink(lastReturned);
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification(){
+            if(modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    private class LinkedListListIterator implements ListIterator<T> {
+        private Node<T> next;               //node returned by the next call to next(), null at the end of the list
+        private Node<T> lastReturned;       //node returned by the last next()/previous(), null after add() or remove()
+        private int nextIndex;
+        private int expectedModCount;
+
+        LinkedListListIterator(int index){
+            next = index == size ? null : findElementAtIndex(index);
+            nextIndex = index;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public boolean hasNext() { return nextIndex < size; }
+
+        @Override
+        public T next() {
+            checkForComodification();
+            if(!hasNext())
+                throw new NoSuchElementException();
+
+            lastReturned = next;
+            next = next.next;
+            nextIndex++;
+            return lastReturned.data;
+        }
+
+        @Override
+        public boolean hasPrevious() { return nextIndex > 0; }
+
+        @Override
+        public T previous() {
+            checkForComodification();
+            if(!hasPrevious())
+                throw new NoSuchElementException();
+
+            next = next == null ? tail : next.prev;
+            lastReturned = next;
+            nextIndex--;
+            return lastReturned.data;
+        }
+
+        @Override
+        public int nextIndex() { return nextIndex; }
+
+        @Override
+        public int previousIndex() { return nextIndex - 1; }
+
+        @Override
+        public void remove() {
+            checkForComodification();
+            if(lastReturned == null)
+                throw new IllegalStateException();
+
+            if(lastReturned == next)        //after previous()...the cursor now sits in front of the node after it
+                next = next.next;
+            else
+                nextIndex--;
+
+            unlink(lastReturned);
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void set(T data) {
+            checkForComodification();
+            if(lastReturned == null)
+                throw new IllegalStateException();
+
+            lastReturned.data = data;
+        }
+
+        //inserts in front of the cursor, so the next call to next() is unaffected
+        @Override
+        public void add(T data) {
+            checkForComodification();
+
+            if(next == null)
+                linkLast(data);
+            else
+                linkBefore(data, next);
+
+            nextIndex++;
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification(){
+            if(modCount != expectedModCount)
+                throw new ConcurrentModificationException();
         }
     }
 
@@ -47,10 +177,12 @@ public class LinkedList<T> implements Queue<T>, Iterable<T> {
     private static class Node<T> {
         private T data;
         private Node<T> next;
+        private Node<T> prev;
 
         public Node(T data){
             this.data = data;
             next = null;
+            prev = null;
         }
     }
 
@@ -64,41 +196,122 @@ public class LinkedList<T> implements Queue<T>, Iterable<T> {
     //appends the element to the end of the linkedlist
     @Override
     public void add(T data){
-        Node<T> toAdd = new Node<T>(data);
-
-        if(head == null)
-            head = toAdd;
-        else{
-            Node<T> node = findElementAtIndex(size-1);
-            node.next = toAdd;
-        }
-        size++;
+        linkLast(data);
     }
 
     //appends the element to the specified index of the LinkedList
     public boolean add(int index, T data){
         isIndexInBounds(index, size);
 
-        Node<T> toAdd = new Node<>(data);
-        ArrayList<Node<T>> nodes = findElementAndParentAtIndex(index);
+        if(index == size)
+            linkLast(data);
+        else
+            linkBefore(data, findElementAtIndex(index));
+        return true;
+    }
 
-        if(nodes.get(1) == null)
-            head = toAdd;
+    //inserts the element at the front of the linkedlist
+    public void addFirst(T data){
+        if(head == null)
+            linkLast(data);
         else
-            nodes.get(1).next = toAdd;
+            linkBefore(data, head);
+    }
 
-        toAdd.next = nodes.get(0);
-        size++;
-        return true;
+    //appends the element to the end of the linkedlist
+    public void addLast(T data){
+        linkLast(data);
+    }
+
+    //builds a chain of nodes for the whole collection first, then hooks it onto the tail in one step
+    @Override
+    public void addAll(Collection<? extends T> c){
+        Node<T> first = null;
+        Node<T> last = null;
+        int added = 0;
+
+        for(T data : c){
+            Node<T> toAdd = new Node<>(data);
+            if(first == null)
+                first = toAdd;
+            else {
+                last.next = toAdd;
+                toAdd.prev = last;
+            }
+            last = toAdd;
+            added++;
+        }
+
+        if(first == null)
+            return;
+
+        if(tail == null)
+            head = first;
+        else {
+            tail.next = first;
+            first.prev = tail;
+        }
+        tail = last;
+
+        size += added;
+        modCount++;
+    }
+
+    //copies up to maxElements elements from the front into the collection, then cuts all of their nodes off at once
+    @Override
+    public int drainTo(Collection<? super T> c, int maxElements){
+        Node<T> node = head;
+        int moved = 0;
+
+        while(moved < maxElements && node != null){
+            c.add(node.data);
+            node = node.next;
+            moved++;
+        }
+
+        cutFront(node, moved);
+        return moved;
+    }
+
+    //moves up to maxElements elements from the front onto the end of another LinkedList...the nodes themselves are
+    //spliced over, so nothing is copied or allocated
+    public int drainTo(LinkedList<T> target, int maxElements){
+        if(target == this)
+            throw new IllegalArgumentException("Can't drain a queue into itself");
+
+        Node<T> first = head;
+        Node<T> last = null;
+        int moved = 0;
+
+        for(Node<T> node = head; moved < maxElements && node != null; node = node.next){
+            last = node;
+            moved++;
+        }
+        if(moved == 0)
+            return 0;
+
+        cutFront(last.next, moved);
+
+        if(target.tail == null)
+            target.head = first;
+        else {
+            target.tail.next = first;
+            first.prev = target.tail;
+        }
+        target.tail = last;
+
+        target.size += moved;
+        target.modCount++;
+        return moved;
     }
 
     //Removes all elements from the linkedlist
     @Override
     public void clear(){
-        for(int i=0; i<size; i++){
-            remove();
-            size--;
-        }
+        head = null;
+        tail = null;
+        size = 0;
+        modCount++;
     }
 
     //returns true if element is contained in the linkedlist, false otherwise
@@ -138,12 +351,12 @@ public class LinkedList<T> implements Queue<T>, Iterable<T> {
     }
 
     //returns the last index of a specified element. Returns -1 if the element isn't present
-    public int lastIndexOf(int element){
+    public int lastIndexOf(T element){
+        Node<T> temp = tail;
         for(int i=size-1; i>=0; i--){
-            Node<T> node = findElementAtIndex(i);
-
-            if(node.data.equals(element))
+            if(temp.data.equals(element))
                 return i;
+            temp = temp.prev;
         }
 
         return -1;
@@ -157,8 +370,7 @@ public class LinkedList<T> implements Queue<T>, Iterable<T> {
 
     //Returns but does not remove the last item in the linkedlist
     public T peekLast(){
-        Node<T> node = findElementAtIndex(size-1);
-        return node == null ? null : node.data;
+        return tail == null ? null : tail.data;
     }
 
     @Override
@@ -167,42 +379,44 @@ public class LinkedList<T> implements Queue<T>, Iterable<T> {
     //Removes and returns first item in the linkedlist
     @Override
     public T remove(){
-        Node<T> temp = head;
         if(head == null)
             throw new NoSuchElementException();
-        head = temp.next;
 
-        size--;
-        return temp.data;
+        T toReturn = head.data;
+        unlink(head);
+        return toReturn;
+    }
+
+    //Removes and returns first item in the linkedlist
+    public T removeFirst(){ return remove(); }
+
+    //Removes and returns last item in the linkedlist
+    public T removeLast(){
+        if(tail == null)
+            throw new NoSuchElementException();
+
+        T toReturn = tail.data;
+        unlink(tail);
+        return toReturn;
     }
 
     //Returns and removes item at the specified index of the linkedlist
     public T remove(int index){
         isIndexInBounds(index, size-1);
 
-        if(index == 0)
-            return remove();
-
-        ArrayList<Node<T>> forDeletion = findElementAndParentAtIndex(index);
-        forDeletion.get(1).next = forDeletion.get(0).next;
-
-        size--;
-        return forDeletion.get(0).data;
+        Node<T> forDeletion = findElementAtIndex(index);
+        unlink(forDeletion);
+        return forDeletion.data;
     }
 
     //returns true if element is found and removed, false otherwise
     @Override
     public boolean remove(T element){
-        ArrayList<Node<T>> nodes = findElementAndParent(element);
-        if(nodes == null)
+        Node<T> node = findElement(element);
+        if(node == null)
             return false;
-        else if(nodes.get(1) == null)
-            head = nodes.get(0).next;
-        else {
-            nodes.get(1).next = nodes.get(0).next;
-        }
 
-        size--;
+        unlink(node);
         return true;
     }
 
@@ -239,52 +453,101 @@ public class LinkedList<T> implements Queue<T>, Iterable<T> {
         return finalStr;
     }
 
-    //Searches for a specified element...returns the element and its parent in an ArrayList
-    //The order of the ArrayList is {node, parent}
-    private ArrayList<Node<T>> findElementAndParent(T element){
-        ArrayList<Node<T>> nodes = new ArrayList<>();
+    //appends a new node after the tail
+    private void linkLast(T data){
+        Node<T> toAdd = new Node<>(data);
 
-        Node<T> temp = head;
-        Node<T> parent = null;
+        if(tail == null)
+            head = toAdd;
+        else {
+            tail.next = toAdd;
+            toAdd.prev = tail;
+        }
+        tail = toAdd;
 
-        for(int i=0; i<size; i++){
-            if(temp.data.equals(element)){
-                nodes.add(temp);
-                nodes.add(parent);
-                return nodes;
-            }
+        size++;
+        modCount++;
+    }
 
-            parent = temp;
-            temp = temp.next;
+    //drops the first count nodes of the list...newHead is the node after them, or null if that was every node
+    //the dropped nodes stay linked to each other, but not to the list
+    private void cutFront(Node<T> newHead, int count){
+        if(count == 0)
+            return;
+
+        if(newHead == null){
+            head = tail = null;
         }
-        return null;
+        else {
+            newHead.prev.next = null;
+            newHead.prev = null;
+            head = newHead;
+        }
+
+        size -= count;
+        modCount++;
     }
 
-    //returns the element at a specified index
-    private Node<T> findElementAtIndex(int index){
-        Node<T> temp = head;
-        for(int i=0; i<index; i++){
-            temp = temp.next;
-        }
+    //inserts a new node in front of node, which has to be in the list
+    private void linkBefore(T data, Node<T> node){
+        Node<T> toAdd = new Node<>(data);
+        toAdd.next = node;
+        toAdd.prev = node.prev;
 
-        return temp;
+        if(node.prev == null)
+            head = toAdd;
+        else
+            node.prev.next = toAdd;
+        node.prev = toAdd;
+
+        size++;
+        modCount++;
     }
 
-    //Given an index, it returns an ArrayList containing the node at that index and its parent
-    //The ArrayList order is the same as the findElementAndParent(T element) method
-    private ArrayList<Node<T>> findElementAndParentAtIndex(int index){
-        ArrayList<Node<T>> nodes = new ArrayList<>();
+    //takes a node out of the list...its neighbours are linked to each other directly
+    private void unlink(Node<T> node){
+        if(node.prev == null)
+            head = node.next;
+        else
+            node.prev.next = node.next;
+
+        if(node.next == null)
+            tail = node.prev;
+        else
+            node.next.prev = node.prev;
+
+        node.next = null;
+        node.prev = null;
+
+        size--;
+        modCount++;
+    }
+
+    //Searches for a specified element...returns its node, or null if it isn't present
+    private Node<T> findElement(T element){
         Node<T> temp = head;
-        Node<T> parent = null;
 
-        for(int i=0; i<index; i++){
-            parent = temp;
+        for(int i=0; i<size; i++){
+            if(temp.data.equals(element))
+                return temp;
             temp = temp.next;
         }
+        return null;
+    }
 
-        nodes.add(temp);
-        nodes.add(parent);
-        return nodes;
+    //returns the element at a specified index...walks from whichever end of the list is closer
+    private Node<T> findElementAtIndex(int index){
+        if(index < size / 2){
+            Node<T> temp = head;
+            for(int i=0; i<index; i++)
+                temp = temp.next;
+            return temp;
+        }
+
+        Node<T> temp = tail;
+        for(int i=size-1; i>index; i--)
+            temp = temp.prev;
+        return temp;
     }
 
     //determines if an exception needs to be thrown for a specified index
@@ -292,4 +555,4 @@ public class LinkedList<T> implements Queue<T>, Iterable<T> {
         if(index < 0 || index > max)
             throw new IndexOutOfBoundsException("Custom");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,247 @@
+/*
+    A HashMap specialized for long keys. Keys are stored in a long array next to an array of values, so the key is
+    never boxed into a Long and no Entry objects are created. It uses the same layout as OpenHashMap...a power-of-two
+    table, a spread hash and linear probing with backward shift deletion.
+
+    The key 0 marks an empty slot inside the table, so an entry with the key 0 is kept off to the side in its own fields.
+ */
+
+public class LongObjectHashMap<V> {
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private long[] keys;            //0 means the slot is empty
+    private V[] values;
+    private float maxLoadFactor;
+    private int capacity;           //always a power of two
+    private int mask;
+    private int items;              //includes the zero key if it's present
+
+    private boolean hasZeroKey;
+    private V zeroValue;
+
+    public LongObjectHashMap(){
+        this(16, 0.75F);
+    }
+
+    public LongObjectHashMap(int initialCapacity){
+        this(initialCapacity, 0.75F);
+    }
+
+    public LongObjectHashMap(int initialCapacity, float loadFactor){
+        if(initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        if(loadFactor <= 0 || loadFactor >= 1 || Float.isNaN(loadFactor))
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+
+        maxLoadFactor = loadFactor;
+        items = 0;
+        allocate(OpenHashMap.tableSizeFor(initialCapacity));
+    }
+
+    //returns the previous value of the key, or null if it wasn't present
+    public V put(long key, V value){
+        if(key == 0){
+            V toReturn = zeroValue;
+            if(!hasZeroKey){
+                hasZeroKey = true;
+                items++;
+            }
+            zeroValue = value;
+            return toReturn;
+        }
+
+        int i = slotFor(key);
+        if(keys[i] == key){
+            V toReturn = values[i];
+            values[i] = value;
+            return toReturn;
+        }
+
+        //grow before the key goes in, so a table that can't grow any more is never left without an empty slot
+        if(items + 1 > capacity * maxLoadFactor){
+            rehash(capacity << 1);
+            i = slotFor(key);
+        }
+
+        keys[i] = key;
+        values[i] = value;
+        items++;
+
+        return null;
+    }
+
+    public V get(long key){
+        if(key == 0)
+            return zeroValue;
+
+        int i = slotFor(key);
+        return keys[i] == key ? values[i] : null;
+    }
+
+    public boolean containsKey(long key){
+        if(key == 0)
+            return hasZeroKey;
+        return keys[slotFor(key)] == key;
+    }
+
+    public boolean containsValue(Object value){
+        if(hasZeroKey && (value == null ? zeroValue == null : value.equals(zeroValue)))
+            return true;
+
+        for(int i=0; i<capacity; i++){
+            if(keys[i] != 0 && (value == null ? values[i] == null : value.equals(values[i])))
+                return true;
+        }
+        return false;
+    }
+
+    //returns the value that was removed, or null if the key wasn't present
+    public V remove(long key){
+        if(key == 0){
+            if(!hasZeroKey)
+                return null;
+
+            V toReturn = zeroValue;
+            hasZeroKey = false;
+            zeroValue = null;
+            items--;
+            return toReturn;
+        }
+
+        int i = slotFor(key);
+        if(keys[i] != key)
+            return null;
+
+        V toReturn = values[i];
+        deleteSlot(i);
+        items--;
+        return toReturn;
+    }
+
+    public void clear(){
+        for(int i=0; i<capacity; i++){
+            keys[i] = 0;
+            values[i] = null;
+        }
+
+        hasZeroKey = false;
+        zeroValue = null;
+        items = 0;
+    }
+
+    public int size(){ return items; }
+
+    public boolean isEmpty(){ return items == 0; }
+
+    //copies the keys into a new array...the order matches values()
+    public long[] keys(){
+        long[] toReturn = new long[items];
+        int n = 0;
+
+        if(hasZeroKey)
+            toReturn[n++] = 0;
+        for(int i=0; i<capacity; i++){
+            if(keys[i] != 0)
+                toReturn[n++] = keys[i];
+        }
+
+        return toReturn;
+    }
+
+    //copies the values into a new array...the order matches keys()
+    public Object[] values(){
+        Object[] toReturn = new Object[items];
+        int n = 0;
+
+        if(hasZeroKey)
+            toReturn[n++] = zeroValue;
+        for(int i=0; i<capacity; i++){
+            if(keys[i] != 0)
+                toReturn[n++] = values[i];
+        }
+
+        return toReturn;
+    }
+
+    @Override
+    public String toString(){
+        if(items == 0)
+            return "{}";
+
+        StringBuilder toReturn = new StringBuilder("{");
+
+        if(hasZeroKey)
+            toReturn.append(0).append("=").append(zeroValue).append(", ");
+        for(int i=0; i<capacity; i++){
+            if(keys[i] != 0)
+                toReturn.append(keys[i]).append("=").append(values[i]).append(", ");
+        }
+
+        toReturn.setLength(toReturn.length() - 2);
+        return toReturn.append("}").toString();
+    }
+
+    //returns the slot holding the key, or the empty slot where it would be inserted
+    private int slotFor(long key){
+        int i = hash(key) & mask;
+        while(keys[i] != 0 && keys[i] != key)
+            i = (i + 1) & mask;
+        return i;
+    }
+
+    //same backward shift as OpenHashMap.deleteSlot()
+    private void deleteSlot(int i){
+        int hole = i;
+        int j = (i + 1) & mask;
+
+        while(keys[j] != 0){
+            int home = hash(keys[j]) & mask;
+
+            if(((j - home) & mask) >= ((j - hole) & mask)){
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+
+        keys[hole] = 0;
+        values[hole] = null;
+    }
+
+    private void rehash(int newCapacity){
+        if(capacity == MAX_CAPACITY)
+            throw new IllegalStateException("Map is full: " + items + " entries");
+
+        long[] oldKeys = keys;
+        V[] oldValues = values;
+
+        allocate(newCapacity);
+
+        for(int j=0; j<oldKeys.length; j++){
+            if(oldKeys[j] != 0){
+                int i = hash(oldKeys[j]) & mask;
+                while(keys[i] != 0)
+                    i = (i + 1) & mask;
+
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(int newCapacity){
+        capacity = newCapacity;
+        mask = newCapacity - 1;
+        keys = new long[newCapacity];
+        values = (V[]) new Object[newCapacity];
+    }
+
+    //folds the upper half of the key into the lower half, then scrambles it like IntIntHashMap does
+    private static int hash(long key){
+        long h = key * 0x9E3779B97F4A7C15L;
+        return OpenHashMap.spread((int) (h ^ (h >>> 32)));
+    }
+}
@@ -0,0 +1,162 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/*
+    A heap of long priorities, each with a payload, kept in two parallel arrays instead of a list of objects...no
+    boxing, no Comparator, and sifting a priority only touches the long[] plus one write into the payload array.
+
+    The smallest priority is on top, or the largest if maxOnTop. A MaxOnTop heap stores every priority bit-flipped
+    (~p is smaller exactly when p is larger, and unlike -p it can't overflow), so both directions run the same
+    comparisons and the direction is never checked during a sift.
+
+    The heap is 4-ary (see the arity note in PriorityQueue): each node has 4 children sitting next to each other.
+    Payloads can be null, so peekValue()/poll() throw on an empty queue instead of returning null.
+ */
+
+public class LongPriorityQueue<V> {
+
+    private static final int ARITY = 4;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] priorities;      //stored flipped if maxOnTop
+    private Object[] values;        //values[i] is the payload of priorities[i]
+    private int size;
+    private final long flip;        //0, or all ones if maxOnTop...priorities are xored with it going in and out
+
+    public LongPriorityQueue(){
+        this(false);
+    }
+
+    public LongPriorityQueue(boolean maxOnTop){
+        this(DEFAULT_CAPACITY, maxOnTop);
+    }
+
+    public LongPriorityQueue(int initialCapacity, boolean maxOnTop){
+        if(initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+
+        int capacity = Math.max(1, initialCapacity);
+        priorities = new long[capacity];
+        values = new Object[capacity];
+        flip = maxOnTop ? -1L : 0L;
+    }
+
+    public void add(long priority, V value){
+        if(size == priorities.length){
+            int capacity = size + (size >> 1) + 1;
+            priorities = Arrays.copyOf(priorities, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        siftUp(size++, priority ^ flip, value);
+    }
+
+    //returns the priority on top
+    public long peekPriority(){
+        checkNotEmpty();
+        return priorities[0] ^ flip;
+    }
+
+    //returns the payload of the priority on top
+    @SuppressWarnings("unchecked")
+    public V peekValue(){
+        checkNotEmpty();
+        return (V) values[0];
+    }
+
+    //removes the priority on top and returns its payload...call peekPriority() first if the priority is needed too
+    @SuppressWarnings("unchecked")
+    public V poll(){
+        checkNotEmpty();
+        V toReturn = (V) values[0];
+        removeTop();
+        return toReturn;
+    }
+
+    //removes the priority on top and returns it
+    public long pollPriority(){
+        checkNotEmpty();
+        long toReturn = priorities[0] ^ flip;
+        removeTop();
+        return toReturn;
+    }
+
+    //the payloads are cleared so they can be garbage collected...the priorities are just forgotten
+    public void clear(){
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+
+    public boolean isEmpty(){ return size == 0; }
+
+    public int size(){ return size; }
+
+    //lists priority=payload pairs in heap order (the top comes first, the rest in no particular order)
+    @Override
+    public String toString(){
+        StringBuilder toReturn = new StringBuilder("[");
+        for(int i=0; i<size; i++){
+            if(i != 0)
+                toReturn.append(", ");
+            toReturn.append(priorities[i] ^ flip).append('=').append(values[i]);
+        }
+        return toReturn.append("]").toString();
+    }
+
+    private void checkNotEmpty(){
+        if(size == 0)
+            throw new NoSuchElementException();
+    }
+
+    //the last pair fills the hole left at the top, then sifts down
+    private void removeTop(){
+        size--;
+        long priority = priorities[size];
+        Object value = values[size];
+        values[size] = null;
+
+        if(size != 0)
+            siftDown(0, priority, value);
+    }
+
+    //both sifts move a hole and write the sifted pair once at the end, like PriorityQueue
+    private void siftUp(int index, long priority, Object value){
+        while(index > 0){
+            int parent = (index - 1) / ARITY;
+            if(priority >= priorities[parent])
+                break;
+
+            priorities[index] = priorities[parent];
+            values[index] = values[parent];
+            index = parent;
+        }
+
+        priorities[index] = priority;
+        values[index] = value;
+    }
+
+    private void siftDown(int index, long priority, Object value){
+        while(true){
+            int firstChild = ARITY*index + 1;
+            if(firstChild >= size)
+                break;
+
+            int lastChild = Math.min(firstChild + ARITY, size);
+            int best = firstChild;
+            for(int child = firstChild + 1; child < lastChild; child++){
+                if(priorities[child] < priorities[best])
+                    best = child;
+            }
+
+            if(priorities[best] >= priority)
+                break;
+
+            priorities[index] = priorities[best];
+            values[index] = values[best];
+            index = best;
+        }
+
+        priorities[index] = priority;
+        values[index] = value;
+    }
+}
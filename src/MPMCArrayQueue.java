@@ -0,0 +1,284 @@
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+    A bounded, lock-free queue in a circular array, shared by any number of producers and consumers (Dmitry Vyukov's
+    bounded MPMC queue).
+
+    Every slot has a sequence number next to it, which tells each side whose turn the slot is:
+
+    - sequence == pos       the slot is free for the producer that claims position pos
+    - sequence == pos + 1   the slot holds the element at position pos, ready for the consumer that claims it
+
+    A producer claims a position by moving tail forward with a compareAndSet, writes its element, and then publishes
+    the slot by bumping its sequence. Consumers do the same with head. Nobody ever waits on another thread's half-finished
+    write (except for the brief claim of remove(T), below). A slot whose turn hasn't come yet just means the queue is full (or empty).
+
+    head and tail are kept in one AtomicLongArray, PADDING longs apart, so producers and consumers don't keep
+    stealing the same cache line from each other (false sharing).
+
+    An element can't be taken out of the middle of the ring, so remove(T) leaves a tombstone in its slot instead.
+    It claims the slot by swapping its sequence for CLAIMED, replaces the element, then puts the sequence back.
+    A consumer that won the slot through head also has to swap the sequence for CLAIMED before it reads the element,
+    so only one of the two can ever hold the slot, and the sequence is never put back over a slot that was freed.
+    Consumers free tombstones like any other slot and move on to the next one.
+
+    Elements can't be null.
+ */
+
+public class MPMCArrayQueue<T> implements BlockingQueue<T> {
+
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final int PADDING = 16;          //longs between the two counters...128 bytes, two cache lines
+    private static final int HEAD = PADDING;
+    private static final int TAIL = 2 * PADDING;
+
+    private static final long CLAIMED = -1;                 //the sequence of a slot remove(T) is working on
+    private static final Object REMOVED = new Object();     //left in the slot of an element remove(T) took out
+
+    private final Object[] buffer;
+    private final AtomicLongArray sequences;
+    private final AtomicLongArray counters;     //head at HEAD, tail at TAIL, nothing in between
+    private final int mask;
+    private final AtomicInteger removed = new AtomicInteger();      //tombstones between head and tail
+
+    private final QueueWaiters notEmpty = new QueueWaiters();
+    private final QueueWaiters notFull = new QueueWaiters();
+
+    //the capacity is rounded up to a power of two, and is at least 2
+    public MPMCArrayQueue(int capacity){
+        if(capacity < 1 || capacity > MAX_CAPACITY)
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+
+        int length = OpenHashMap.tableSizeFor(capacity);
+        buffer = new Object[length];
+        sequences = new AtomicLongArray(length);
+        counters = new AtomicLongArray(3 * PADDING);
+        mask = length - 1;
+
+        for(int i=0; i<length; i++)
+            sequences.set(i, i);
+    }
+
+    //same as offer, except a full queue throws an exception
+    @Override
+    public void add(T data){
+        if(!offer(data))
+            throw new IllegalStateException("Queue is full");
+    }
+
+    @Override
+    public boolean offer(T data){
+        if(data == null)
+            throw new NullPointerException();
+
+        while(true){
+            long pos = counters.get(TAIL);
+            int slot = (int) pos & mask;
+            long diff = sequences.get(slot) - pos;
+
+            if(diff == 0){
+                if(counters.compareAndSet(TAIL, pos, pos + 1)){
+                    buffer[slot] = data;
+                    sequences.lazySet(slot, pos + 1);       //publishes the element...the consumer reads the sequence first
+                    notEmpty.signal();
+                    return true;
+                }
+            }
+            else if(diff < 0)           //the consumer a whole lap behind hasn't freed this slot yet
+                return false;
+            //diff > 0 means another producer claimed pos first...retry with the new tail
+        }
+    }
+
+    @Override
+    public boolean offer(T data, long timeout, TimeUnit unit) throws InterruptedException {
+        return notFull.await(() -> offer(data) ? Boolean.TRUE : null, Math.max(0, unit.toNanos(timeout))) != null;
+    }
+
+    @Override
+    public void put(T data) throws InterruptedException {
+        notFull.await(() -> offer(data) ? Boolean.TRUE : null, -1);
+    }
+
+    //removes and returns the first element, or null if the queue is empty
+    @Override
+    @SuppressWarnings("unchecked")
+    public T poll(){
+        while(true){
+            long pos = counters.get(HEAD);
+            int slot = (int) pos & mask;
+            long sequence = sequences.get(slot);
+            long diff = sequence - (pos + 1);
+
+            if(diff == 0){
+                if(counters.compareAndSet(HEAD, pos, pos + 1)){
+                    Object toReturn = take(slot, pos);
+                    if(toReturn == REMOVED){
+                        removed.decrementAndGet();
+                        continue;
+                    }
+                    return (T) toReturn;
+                }
+            }
+            else if(sequence == CLAIMED)        //a remove(T) is looking at this slot...it only takes a moment
+                Thread.yield();
+            else if(diff < 0)           //the producer of pos hasn't published it yet
+                return null;
+        }
+    }
+
+    @Override
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return notEmpty.await(this::poll, Math.max(0, unit.toNanos(timeout)));
+    }
+
+    @Override
+    public T take() throws InterruptedException {
+        return notEmpty.await(this::poll, -1);
+    }
+
+    //same as poll, except an empty queue throws an exception
+    @Override
+    public T remove(){
+        T toReturn = poll();
+        if(toReturn == null)
+            throw new NoSuchElementException();
+        return toReturn;
+    }
+
+    //removes one occurrence of the element, leaving a tombstone in its slot...a best effort scan like contains(), so
+    //an element added or taken while it runs may or may not be found
+    @Override
+    public boolean remove(T element){
+        if(element == null)
+            return false;
+
+        long tail = counters.get(TAIL);
+        for(long pos = counters.get(HEAD); pos < tail; pos++){
+            int slot = (int) pos & mask;
+            Object item = buffer[slot];
+            if(item == null || item == REMOVED || !element.equals(item))
+                continue;
+
+            //only works while the slot still holds the element at pos and nobody else holds it...a consumer may have
+            //taken it already
+            if(!sequences.compareAndSet(slot, pos + 1, CLAIMED))
+                continue;
+
+            item = buffer[slot];        //read again, the first read could have been from an earlier lap
+            boolean found = item != REMOVED && element.equals(item);
+            if(found){
+                buffer[slot] = REMOVED;
+                removed.incrementAndGet();
+            }
+            sequences.set(slot, pos + 1);           //the claim is ours alone, so nobody changed the sequence meanwhile
+
+            if(found)
+                return true;
+        }
+        return false;
+    }
+
+    //returns but does not remove the first element, or null if the queue is empty
+    @Override
+    @SuppressWarnings("unchecked")
+    public T peek(){
+        while(true){
+            long pos = counters.get(HEAD);
+            int slot = (int) pos & mask;
+            long sequence = sequences.get(slot);
+
+            if(sequence == CLAIMED){
+                Thread.yield();
+                continue;
+            }
+            if(sequence - (pos + 1) < 0)
+                return null;
+
+            Object toReturn = buffer[slot];
+            if(toReturn == REMOVED){
+                //a tombstone at the front...free it so the element behind it can be looked at
+                if(counters.compareAndSet(HEAD, pos, pos + 1)){
+                    take(slot, pos);
+                    removed.decrementAndGet();
+                }
+                continue;
+            }
+
+            if(toReturn != null && counters.get(HEAD) == pos)      //nobody took it while we were reading
+                return (T) toReturn;
+        }
+    }
+
+    //same as peek, except an empty queue throws an exception
+    @Override
+    public T element(){
+        T toReturn = peek();
+        if(toReturn == null)
+            throw new NoSuchElementException();
+        return toReturn;
+    }
+
+    @Override
+    public void clear(){
+        while(poll() != null);
+    }
+
+    //a best effort scan of the slots between head and tail...only exact while no other thread is using the queue
+    @Override
+    public boolean contains(T element){
+        if(element == null)
+            return false;
+
+        long tail = counters.get(TAIL);
+        for(long pos = counters.get(HEAD); pos < tail; pos++){
+            Object item = buffer[(int) pos & mask];
+            if(item != null && item != REMOVED && element.equals(item))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isEmpty(){ return size() == 0; }
+
+    //tombstones aren't counted, even though they take up a slot until a consumer passes them
+    @Override
+    public int size(){
+        return (int) Math.max(0, usedSlots() - removed.get());
+    }
+
+    public int capacity(){ return buffer.length; }
+
+    @Override
+    public int remainingCapacity(){ return (int) (buffer.length - usedSlots()); }
+
+    @Override
+    public String toString(){
+        return "MPMCArrayQueue[size=" + size() + ", capacity=" + buffer.length + "]";
+    }
+
+    //call after claiming pos by moving head past it...returns the element or REMOVED and frees the slot. A remove(T)
+    //may have claimed the slot after we read its sequence, so it's claimed here too before anything is read
+    private Object take(int slot, long pos){
+        while(!sequences.compareAndSet(slot, pos + 1, CLAIMED))
+            Thread.yield();         //a remove(T) holds it...it puts pos + 1 back in a moment
+
+        Object toReturn = buffer[slot];
+        buffer[slot] = null;
+        sequences.lazySet(slot, pos + mask + 1);        //free for the producer one lap ahead
+        notFull.signal();
+        return toReturn;
+    }
+
+    //the slots between head and tail, tombstones included
+    private long usedSlots(){
+        //read head first...reading tail first could let head pass it and make the size negative
+        long head = counters.get(HEAD);
+        long tail = counters.get(TAIL);
+        return Math.max(0, Math.min(tail - head, buffer.length));
+    }
+}
@@ -1,5 +1,7 @@
 import java.util.Collection;
 import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 public interface Map<K, V> {
 
@@ -29,6 +31,79 @@ public interface Map<K, V> {
 
     Collection<V> values();
 
+    //the methods below are built on get/put/remove, so they work for every map...implementations that can find the
+    //key once and update it in place (or need them to be atomic) override them
+
+    default V getOrDefault(Object key, V defaultValue){
+        V value = get(key);
+        return value != null || containsKey(key) ? value : defaultValue;
+    }
+
+    //returns the key's value, first computing and adding it if the key is absent (or mapped to null)...
+    //nothing is added when the function returns null
+    default V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction){
+        if(mappingFunction == null)
+            throw new NullPointerException();
+
+        V value = get(key);
+        if(value == null){
+            value = mappingFunction.apply(key);
+            if(value != null)
+                put(key, value);
+        }
+        return value;
+    }
+
+    //replaces the value of a present key with whatever the function returns...returning null removes the key
+    default V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction){
+        if(remappingFunction == null)
+            throw new NullPointerException();
+
+        V oldValue = get(key);
+        if(oldValue == null)
+            return null;
+
+        V newValue = remappingFunction.apply(key, oldValue);
+        if(newValue == null)
+            remove(key);
+        else
+            put(key, newValue);
+        return newValue;
+    }
+
+    //same as computeIfPresent, except the function is also called for an absent key (with a null old value)
+    default V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction){
+        if(remappingFunction == null)
+            throw new NullPointerException();
+
+        V oldValue = get(key);
+        V newValue = remappingFunction.apply(key, oldValue);
+
+        if(newValue == null){
+            if(oldValue != null || containsKey(key))
+                remove(key);
+        }
+        else
+            put(key, newValue);
+        return newValue;
+    }
+
+    //puts the value if the key is absent, otherwise combines it with the old one...a null result removes the key
+    //ex. counting words with merge(word, 1, Integer::sum)
+    default V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction){
+        if(value == null || remappingFunction == null)
+            throw new NullPointerException();
+
+        V oldValue = get(key);
+        V newValue = oldValue == null ? value : remappingFunction.apply(oldValue, value);
+
+        if(newValue == null)
+            remove(key);
+        else
+            put(key, newValue);
+        return newValue;
+    }
+
     static interface Entry<K, V>{
         K getKey();
         V getValue();
@@ -0,0 +1,209 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/*
+    An OffHeapHashMap whose table is a memory-mapped file. Nothing has to be loaded when the map is reopened...the
+    file is mapped again and the operating system pages the table in as it's used, so even a huge lookup table is
+    ready within milliseconds. Several processes on the same machine can map the same file read-mostly and share one
+    copy of it in the page cache (writes from one process aren't coordinated with readers in another).
+
+    File layout:
+
+        [header: HEADER_SIZE bytes][segment 0][segment 1]...
+
+    The header records the key/value sizes, the capacity, the load factor and the number of entries. Changes reach
+    the file whenever the operating system writes the pages back...flush() forces them to disk right away.
+
+    Growing the table writes the new table into a temporary file next to the original, flushes it, and then renames
+    it over the original, so the file on disk always holds one complete table.
+ */
+
+public class MappedHashMap<K, V> extends OffHeapHashMap<K, V> implements Closeable {
+
+    private static final long MAGIC = 0x4D41505045444D50L;         //"MAPPEDMP"
+    private static final int HEADER_SIZE = 4096;                    //one page, so the segments start page aligned
+
+    private static final int MAGIC_OFFSET = 0;                      //offsets inside the header
+    private static final int KEY_SIZE_OFFSET = 8;
+    private static final int VALUE_SIZE_OFFSET = 12;
+    private static final int CAPACITY_OFFSET = 16;
+    private static final int ITEMS_OFFSET = 20;
+    private static final int LOAD_FACTOR_OFFSET = 24;
+
+    private final Path file;
+    private final Path resizeFile;
+    private FileChannel channel;
+    private MappedByteBuffer header;
+
+    private FileChannel pendingChannel;         //the temporary file a resize is writing into
+    private MappedByteBuffer pendingHeader;
+
+    //opens the map stored in the file, or creates an empty one there if the file doesn't exist yet
+    public MappedHashMap(Path file, Serializer<K> keySerializer, Serializer<V> valueSerializer) throws IOException {
+        this(file, keySerializer, valueSerializer, 16, 0.75F);
+    }
+
+    //initialCapacity and loadFactor are only used when the file is created...a reopened map keeps its own
+    public MappedHashMap(Path file, Serializer<K> keySerializer, Serializer<V> valueSerializer, int initialCapacity, float loadFactor) throws IOException {
+        super(keySerializer, valueSerializer, existingLoadFactor(file, loadFactor));
+
+        if(initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+
+        this.file = file;
+        resizeFile = file.resolveSibling(file.getFileName() + ".resize");
+
+        boolean exists = Files.exists(file) && Files.size(file) >= HEADER_SIZE;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+
+            if(exists){
+                if(header.getLong(MAGIC_OFFSET) != MAGIC)
+                    throw new IOException(file + " is not a MappedHashMap file");
+                if(header.getInt(KEY_SIZE_OFFSET) != keySize() || header.getInt(VALUE_SIZE_OFFSET) != valueSize())
+                    throw new IOException(file + " was written with different key/value sizes");
+
+                initTable(header.getInt(CAPACITY_OFFSET), header.getInt(ITEMS_OFFSET));
+            }
+            else {
+                initTable(OpenHashMap.tableSizeFor(initialCapacity), 0);
+                writeHeader(header);
+            }
+        } catch(IOException | RuntimeException e){
+            //the caller never gets the map, so nobody else could close the channel
+            try {
+                channel.close();
+            } catch(IOException closeFailure){
+                e.addSuppressed(closeFailure);
+            }
+            throw e;
+        }
+    }
+
+    //forces every change made so far out to the file
+    public void flush(){
+        for(ByteBuffer segment : segments())
+            ((MappedByteBuffer) segment).force();
+        header.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    @Override
+    protected ByteBuffer[] createSegments(int count, int bytesPerSegment, boolean resizing){
+        boolean mapped = false;
+        try {
+            FileChannel target = channel;
+
+            if(resizing){
+                Files.deleteIfExists(resizeFile);
+                pendingChannel = FileChannel.open(resizeFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                pendingHeader = pendingChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+                target = pendingChannel;
+            }
+
+            //mapping past the end of the file grows it, and the new bytes read as zero
+            ByteBuffer[] toReturn = new ByteBuffer[count];
+            for(int s=0; s<count; s++)
+                toReturn[s] = target.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + (long) s * bytesPerSegment, bytesPerSegment);
+
+            mapped = true;
+            return toReturn;
+        } catch(IOException e){
+            throw new IllegalStateException("Could not map the table of " + file, e);
+        } finally {
+            if(resizing && !mapped)         //the map keeps its old table, so the temporary file has to go
+                abandonResize();
+        }
+    }
+
+    @Override
+    protected void tableResized(ByteBuffer[] oldSegments){
+        boolean moved = false;
+        try {
+            writeHeader(pendingHeader);
+            flush(pendingHeader);
+
+            Files.move(resizeFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+        } catch(IOException e){
+            throw new IllegalStateException("Could not replace the table of " + file, e);
+        } finally {
+            if(!moved)                      //the original file is untouched and OffHeapHashMap goes back to the old table
+                abandonResize();
+        }
+
+        FileChannel oldChannel = channel;
+        channel = pendingChannel;
+        header = pendingHeader;
+        pendingChannel = null;
+        pendingHeader = null;
+
+        //the new table is already in place, so failing to let go of the old file is no reason to fail the resize
+        try {
+            oldChannel.close();
+        } catch(IOException ignored){ }
+    }
+
+    @Override
+    protected void sizeChanged(){
+        if(pendingHeader == null)           //in the middle of a resize the header is written by tableResized() instead
+            header.putInt(ITEMS_OFFSET, size());
+    }
+
+    //closes and deletes the temporary file of a resize that failed halfway...any error doing that is ignored, since
+    //the resize is already failing with a better one
+    private void abandonResize(){
+        try {
+            if(pendingChannel != null)
+                pendingChannel.close();
+        } catch(IOException ignored){ }
+
+        try {
+            Files.deleteIfExists(resizeFile);
+        } catch(IOException ignored){ }
+
+        pendingChannel = null;
+        pendingHeader = null;
+    }
+
+    private void flush(MappedByteBuffer newHeader){
+        for(ByteBuffer segment : segments())
+            ((MappedByteBuffer) segment).force();
+        newHeader.force();
+    }
+
+    private void writeHeader(MappedByteBuffer target){
+        target.putLong(MAGIC_OFFSET, MAGIC);
+        target.putInt(KEY_SIZE_OFFSET, keySize());
+        target.putInt(VALUE_SIZE_OFFSET, valueSize());
+        target.putInt(CAPACITY_OFFSET, capacity());
+        target.putInt(ITEMS_OFFSET, size());
+        target.putFloat(LOAD_FACTOR_OFFSET, loadFactor());
+    }
+
+    //a reopened map has to keep the load factor it was created with
+    private static float existingLoadFactor(Path file, float loadFactor) throws IOException {
+        if(!Files.exists(file) || Files.size(file) < HEADER_SIZE)
+            return loadFactor;
+
+        try(FileChannel in = FileChannel.open(file, StandardOpenOption.READ)){
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+            in.read(buffer, 0);
+            return buffer.getLong(MAGIC_OFFSET) == MAGIC ? buffer.getFloat(LOAD_FACTOR_OFFSET) : loadFactor;
+        }
+    }
+}
@@ -0,0 +1,471 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+    A HashMap whose table lives outside of the Java heap. Keys and values are turned into a fixed number of bytes by a
+    Serializer and written into direct ByteBuffers, so the garbage collector never has to scan the entries...the only
+    heap objects are the buffers themselves. That matters once a table has hundreds of millions of keys.
+
+    Every slot of the table has the same layout:
+
+        [state: 1 byte][hash: 4 bytes][key: keySize bytes][value: valueSize bytes]
+
+    The table is split into segments of up to 1GB because a single ByteBuffer is limited to 2GB. Collisions are
+    resolved with linear probing and backward shift deletion, the same way OpenHashMap does it. Keys are compared by
+    their serialized bytes and hashed from those bytes too, so a key's serialized form must be unique.
+ */
+
+public class OffHeapHashMap<K, V> implements Map<K, V> {
+
+    //converts a value to and from exactly size() bytes at an absolute offset of a buffer
+    public interface Serializer<T> {
+        int size();
+
+        void write(ByteBuffer buffer, int offset, T value);
+
+        T read(ByteBuffer buffer, int offset);
+    }
+
+    public static final Serializer<Long> LONG = new Serializer<Long>() {
+        @Override
+        public int size() { return Long.BYTES; }
+
+        @Override
+        public void write(ByteBuffer buffer, int offset, Long value) { buffer.putLong(offset, value); }
+
+        @Override
+        public Long read(ByteBuffer buffer, int offset) { return buffer.getLong(offset); }
+    };
+
+    public static final Serializer<Integer> INTEGER = new Serializer<Integer>() {
+        @Override
+        public int size() { return Integer.BYTES; }
+
+        @Override
+        public void write(ByteBuffer buffer, int offset, Integer value) { buffer.putInt(offset, value); }
+
+        @Override
+        public Integer read(ByteBuffer buffer, int offset) { return buffer.getInt(offset); }
+    };
+
+    //strings of up to maxBytes bytes of UTF-8, stored as a 2 byte length followed by the bytes and zero padding
+    public static Serializer<String> utf8(int maxBytes){
+        if(maxBytes <= 0 || maxBytes > Short.MAX_VALUE)
+            throw new IllegalArgumentException("Illegal string size: " + maxBytes);
+
+        return new Serializer<String>() {
+            @Override
+            public int size() { return 2 + maxBytes; }
+
+            @Override
+            public void write(ByteBuffer buffer, int offset, String value) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                if(bytes.length > maxBytes)
+                    throw new IllegalArgumentException("String is longer than " + maxBytes + " bytes: " + value);
+
+                buffer.putShort(offset, (short) bytes.length);
+                for(int i=0; i<maxBytes; i++)
+                    buffer.put(offset + 2 + i, i < bytes.length ? bytes[i] : 0);
+            }
+
+            @Override
+            public String read(ByteBuffer buffer, int offset) {
+                byte[] bytes = new byte[buffer.getShort(offset)];
+                for(int i=0; i<bytes.length; i++)
+                    bytes[i] = buffer.get(offset + 2 + i);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final int MAX_SEGMENT_BYTES = 1 << 30;
+
+    private static final byte EMPTY = 0;
+    private static final byte FULL = 1;
+
+    private static final int STATE = 0;         //offsets inside a slot
+    private static final int HASH = 1;
+    private static final int KEY = 5;
+
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final int keySize;
+    private final int slotSize;
+    private final float maxLoadFactor;
+
+    private ByteBuffer[] segments;
+    private int segmentShift;       //slot i is in segments[i >>> segmentShift]
+    private int segmentMask;
+    private int capacity;           //always a power of two
+    private int mask;
+    private int items;
+
+    private final ByteBuffer scratch;       //the key being looked up, serialized...reused so lookups don't allocate
+    private final ByteBuffer valueScratch;  //the value being put, serialized before any byte of the table is touched
+
+    public OffHeapHashMap(Serializer<K> keySerializer, Serializer<V> valueSerializer){
+        this(keySerializer, valueSerializer, 16, 0.75F);
+    }
+
+    public OffHeapHashMap(Serializer<K> keySerializer, Serializer<V> valueSerializer, int initialCapacity, float loadFactor){
+        this(keySerializer, valueSerializer, loadFactor);
+
+        if(initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        initTable(OpenHashMap.tableSizeFor(initialCapacity), 0);
+    }
+
+    //for subclasses that need their own fields set before the table can be created...they must call initTable()
+    protected OffHeapHashMap(Serializer<K> keySerializer, Serializer<V> valueSerializer, float loadFactor){
+        if(keySerializer == null || valueSerializer == null)
+            throw new NullPointerException();
+        if(loadFactor <= 0 || loadFactor >= 1 || Float.isNaN(loadFactor))
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        keySize = keySerializer.size();
+        slotSize = KEY + keySize + valueSerializer.size();
+        maxLoadFactor = loadFactor;
+        scratch = ByteBuffer.allocate(keySize);
+        valueScratch = ByteBuffer.allocate(valueSerializer.size());
+    }
+
+    //creates the table through createSegments()...items is the number of entries the segments already hold
+    protected void initTable(int capacity, int items){
+        if(capacity < 2 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+
+        allocate(capacity, false);
+        this.items = items;
+    }
+
+    //hands out the memory for the table...every byte of a new segment must be zero
+    protected ByteBuffer[] createSegments(int count, int bytesPerSegment, boolean resizing){
+        ByteBuffer[] toReturn = new ByteBuffer[count];
+        for(int s=0; s<count; s++)
+            toReturn[s] = ByteBuffer.allocateDirect(bytesPerSegment);     //direct buffers start zeroed, so every slot is EMPTY
+        return toReturn;
+    }
+
+    //called once a resize has copied everything out of the old segments, which are no longer used afterwards...if it
+    //throws, the resize is undone and the old segments stay in use
+    protected void tableResized(ByteBuffer[] oldSegments){ }
+
+    //called whenever the number of entries changes
+    protected void sizeChanged(){ }
+
+    protected ByteBuffer[] segments(){ return segments; }
+
+    protected int capacity(){ return capacity; }
+
+    protected float loadFactor(){ return maxLoadFactor; }
+
+    protected int keySize(){ return keySize; }
+
+    protected int valueSize(){ return slotSize - KEY - keySize; }
+
+    @Override
+    public V put(K key, V value){
+        if(key == null || value == null)
+            throw new NullPointerException();
+
+        //both serializers run first, so a key or value they reject leaves the table untouched
+        int hash = serializeKey(key);
+        valueSerializer.write(valueScratch, 0, value);
+        int i = findSlot(hash);
+
+        if(i >= 0){
+            V toReturn = readValue(i);
+            writeValue(i);
+            return toReturn;
+        }
+
+        //grow before the key goes in, so a table that can't grow any more is never left without an empty slot
+        if(items + 1 > capacity * maxLoadFactor){
+            rehash(capacity << 1);
+            i = findSlot(hash);         //scratch still holds the key, rehash() only reads the stored hashes
+        }
+
+        i = -(i + 1);           //findSlot returns -(insertion point + 1) when the key is missing
+        ByteBuffer segment = segment(i);
+        int offset = offset(i);
+
+        segment.putInt(offset + HASH, hash);
+        for(int j=0; j<keySize; j++)
+            segment.put(offset + KEY + j, scratch.get(j));
+        writeValue(i);
+        segment.put(offset + STATE, FULL);          //last, so the slot only counts once it's complete
+
+        items++;
+        sizeChanged();
+
+        return null;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        if(m != null){
+            for(Map.Entry<? extends K, ? extends V> entry : m.entrySet()){
+                put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+        int i = indexOf(key);
+        return i < 0 ? null : readValue(i);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for(int i=0; i<capacity; i++){
+            if(isFull(i) && readValue(i).equals(value))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public V remove(Object key){
+        int i = indexOf(key);
+        if(i < 0)
+            return null;
+
+        V toReturn = readValue(i);
+        deleteSlot(i);
+        items--;
+        sizeChanged();
+
+        return toReturn;
+    }
+
+    @Override
+    public void clear() {
+        for(int i=0; i<capacity; i++)
+            segment(i).put(offset(i) + STATE, EMPTY);
+
+        items = 0;
+        sizeChanged();
+    }
+
+    @Override
+    public int size(){ return items; }
+
+    @Override
+    public boolean isEmpty() { return items == 0; }
+
+    //the views below are copies read back out of the table
+
+    @Override
+    public Set<K> keySet() {
+        Set<K> keys = new HashSet<>();
+        for(int i=0; i<capacity; i++){
+            if(isFull(i))
+                keys.add(readKey(i));
+        }
+        return keys;
+    }
+
+    @Override
+    public Collection<V> values() {
+        Collection<V> values = new ArrayList<>();
+        for(int i=0; i<capacity; i++){
+            if(isFull(i))
+                values.add(readValue(i));
+        }
+        return values;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        Set<Map.Entry<K, V>> entrySet = new HashSet<>();
+        for(int i=0; i<capacity; i++){
+            if(isFull(i))
+                entrySet.add(new HashMap.Entry<>(readKey(i), readValue(i)));
+        }
+        return entrySet;
+    }
+
+    @Override
+    public String toString(){
+        if(items == 0)
+            return "{}";
+
+        StringBuilder toReturn = new StringBuilder("{");
+        for(int i=0; i<capacity; i++){
+            if(isFull(i))
+                toReturn.append(readKey(i)).append("=").append(readValue(i)).append(", ");
+        }
+
+        toReturn.setLength(toReturn.length() - 2);
+        return toReturn.append("}").toString();
+    }
+
+    //returns the slot holding the key, or a negative number if it isn't present
+    @SuppressWarnings("unchecked")
+    private int indexOf(Object key){
+        if(key == null)
+            throw new NullPointerException();
+
+        int hash;
+        try {
+            hash = serializeKey((K) key);
+        } catch(ClassCastException | IllegalArgumentException e){
+            return -1;          //the wrong type, or too big for the serializer (ex. a string too long for utf8(n)), can't be in the map
+        }
+
+        return findSlot(hash);
+    }
+
+    //looks for the key currently in scratch...returns its slot, or -(insertion point + 1) if it's missing
+    private int findSlot(int hash){
+        int i = hash & mask;
+
+        while(isFull(i)){
+            if(segment(i).getInt(offset(i) + HASH) == hash && keyMatches(i))
+                return i;
+            i = (i + 1) & mask;
+        }
+
+        return -(i + 1);
+    }
+
+    //writes the key into scratch and returns the hash of its bytes
+    private int serializeKey(K key){
+        keySerializer.write(scratch, 0, key);
+
+        int hash = 0x811C9DC5;              //FNV-1a...hashing the bytes means the hash doesn't depend on hashCode()
+        for(int j=0; j<keySize; j++)
+            hash = (hash ^ (scratch.get(j) & 0xFF)) * 0x01000193;
+
+        return OpenHashMap.spread(hash);
+    }
+
+    private boolean keyMatches(int i){
+        ByteBuffer segment = segment(i);
+        int offset = offset(i) + KEY;
+
+        for(int j=0; j<keySize; j++){
+            if(segment.get(offset + j) != scratch.get(j))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean isFull(int i){
+        return segment(i).get(offset(i) + STATE) == FULL;
+    }
+
+    private K readKey(int i){
+        return keySerializer.read(segment(i), offset(i) + KEY);
+    }
+
+    private V readValue(int i){
+        return valueSerializer.read(segment(i), offset(i) + KEY + keySize);
+    }
+
+    //copies the value in valueScratch into slot i
+    private void writeValue(int i){
+        ByteBuffer segment = segment(i);
+        int offset = offset(i) + KEY + keySize;
+
+        for(int j=0; j<valueScratch.capacity(); j++)
+            segment.put(offset + j, valueScratch.get(j));
+    }
+
+    //same backward shift as OpenHashMap.deleteSlot(), except whole slots of bytes are moved
+    private void deleteSlot(int i){
+        int hole = i;
+        int j = (i + 1) & mask;
+
+        while(isFull(j)){
+            int home = segment(j).getInt(offset(j) + HASH) & mask;
+
+            if(((j - home) & mask) >= ((j - hole) & mask)){
+                copySlot(segment(j), offset(j), segment(hole), offset(hole));
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+
+        segment(hole).put(offset(hole) + STATE, EMPTY);
+    }
+
+    private void copySlot(ByteBuffer from, int fromOffset, ByteBuffer to, int toOffset){
+        for(int j=0; j<slotSize; j++)
+            to.put(toOffset + j, from.get(fromOffset + j));
+    }
+
+    private void rehash(int newCapacity){
+        if(capacity == MAX_CAPACITY)
+            throw new IllegalStateException("Map is full: " + items + " entries");
+
+        ByteBuffer[] oldSegments = segments;
+        int oldCapacity = capacity;
+        int oldShift = segmentShift;
+        int oldMask = segmentMask;
+
+        allocate(newCapacity, true);
+
+        try {
+            //the stored hash is reused, so keys never have to be serialized or deserialized again
+            for(int j=0; j<oldCapacity; j++){
+                ByteBuffer from = oldSegments[j >>> oldShift];
+                int fromOffset = (j & oldMask) * slotSize;
+
+                if(from.get(fromOffset + STATE) == FULL){
+                    int i = from.getInt(fromOffset + HASH) & mask;
+                    while(isFull(i))
+                        i = (i + 1) & mask;
+
+                    copySlot(from, fromOffset, segment(i), offset(i));
+                }
+            }
+
+            tableResized(oldSegments);
+        } catch(RuntimeException e){
+            //the old segments were only read, so going back to them leaves the map as it was before the resize
+            segments = oldSegments;
+            capacity = oldCapacity;
+            mask = oldCapacity - 1;
+            segmentShift = oldShift;
+            segmentMask = oldMask;
+            throw e;
+        }
+    }
+
+    //the fields only change once the new segments exist, so a failed allocation leaves the old table as it was
+    private void allocate(int newCapacity, boolean resizing){
+        //largest power of two number of slots that still fits in one segment
+        int slotsPerSegment = Integer.highestOneBit(MAX_SEGMENT_BYTES / slotSize);
+        slotsPerSegment = Math.min(slotsPerSegment, newCapacity);
+
+        ByteBuffer[] newSegments = createSegments(newCapacity / slotsPerSegment, slotsPerSegment * slotSize, resizing);
+
+        segments = newSegments;
+        capacity = newCapacity;
+        mask = newCapacity - 1;
+        segmentShift = Integer.numberOfTrailingZeros(slotsPerSegment);
+        segmentMask = slotsPerSegment - 1;
+    }
+
+    private ByteBuffer segment(int i){
+        return segments[i >>> segmentShift];
+    }
+
+    private int offset(int i){
+        return (i & segmentMask) * slotSize;
+    }
+}
@@ -0,0 +1,494 @@
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/*
+    This class is an open addressing version of the HashMap. Instead of keeping a LinkedList of entries in every bucket,
+    the keys and values are stored directly in two parallel arrays and collisions are resolved with linear probing.
+    The table size is always a power of two so an index can be found with a bit mask instead of a modulo, and the
+    hash code is "spread" first so the high bits of the key's hashCode still have an effect on the index.
+
+    Removal uses backward shifting rather than tombstones...after a key is deleted, the entries after it in the same
+    probe run are moved back so that lookups never have to skip over dead slots.
+ */
+
+public class OpenHashMap<K, V> implements Map<K, V> {
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private K[] keys;           //a null key means the slot is empty
+    private V[] values;
+    private float maxLoadFactor;
+    private int capacity;       //always a power of two
+    private int mask;           //capacity - 1
+    private int items;
+    private int modCount;       //structural changes, so that iterators can fail fast
+
+    public OpenHashMap(){               //default constructor
+        this(16, 0.75F);
+    }
+
+    public OpenHashMap(int initialCapacity){        //alternative constructors below
+        this(initialCapacity, 0.75F);
+    }
+
+    public OpenHashMap(int initialCapacity, float loadFactor){
+        if(initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        if(loadFactor <= 0 || loadFactor >= 1 || Float.isNaN(loadFactor))
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+
+        maxLoadFactor = loadFactor;
+        items = 0;
+        allocate(tableSizeFor(initialCapacity));
+    }
+
+    @Override
+    public V put(K key, V value){
+        if(key == null)
+            throw new NullPointerException();
+
+        int i = spread(key.hashCode()) & mask;
+
+        //walk the probe run until we either find the key or an empty slot
+        while(keys[i] != null){
+            if(key.equals(keys[i])){
+                V toReturn = values[i];
+                values[i] = value;
+                return toReturn;
+            }
+            i = (i + 1) & mask;
+        }
+
+        //grow before the key goes in, so a table that can't grow any more is never left without an empty slot
+        if(items + 1 > capacity * maxLoadFactor){
+            rehash(capacity << 1);
+
+            i = spread(key.hashCode()) & mask;
+            while(keys[i] != null)
+                i = (i + 1) & mask;
+        }
+
+        keys[i] = key;
+        values[i] = value;
+        items++;
+        modCount++;
+
+        return null;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        if(m != null){
+            for(Map.Entry<? extends K, ? extends V> entry : m.entrySet()){
+                put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        for(int i=0; i<capacity; i++){
+            keys[i] = null;
+            values[i] = null;
+        }
+
+        items = 0;
+        modCount++;
+    }
+
+    //the three views below are live, like HashMap's...they read straight out of the arrays instead of copying them,
+    //reflect later changes to the map, and removing through them (or their iterators) removes from the map
+
+    @Override
+    public Set<K> keySet() {
+        return new KeySet();
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new Values();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySet();
+    }
+
+    @Override
+    public V remove(Object key){
+        int i = indexOf(key);
+        if(i == -1)
+            return null;
+
+        V toReturn = values[i];
+        deleteSlot(i, null);
+        items--;
+        modCount++;
+
+        return toReturn;
+    }
+
+    @Override
+    public int size(){ return items; }
+
+    @Override
+    public boolean isEmpty() { return items == 0; }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) != -1;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for(int i=0; i<capacity; i++){
+            if(keys[i] != null && (value == null ? values[i] == null : value.equals(values[i])))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public V get(Object key) {
+        int i = indexOf(key);
+        return i == -1 ? null : values[i];
+    }
+
+    @Override
+    public String toString(){
+        if(items == 0)
+            return "{}";
+
+        StringBuilder toReturn = new StringBuilder("{");
+
+        for(int i=0; i<capacity; i++){
+            if(keys[i] != null)
+                toReturn.append(keys[i]).append("=").append(values[i]).append(", ");
+        }
+
+        toReturn.setLength(toReturn.length() - 2);
+        return toReturn.append("}").toString();
+    }
+
+    //an entry handed out by entrySet()...setValue writes back through to the map
+    private class OpenEntry implements Map.Entry<K, V> {
+        private final K key;
+        private V value;
+
+        OpenEntry(K key, V value){
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() { return key; }
+
+        @Override
+        public V getValue() { return value; }
+
+        @Override
+        public V setValue(V value) {
+            this.value = value;
+            return put(key, value);
+        }
+
+        public String toString(){
+            return key + "=" + value;
+        }
+    }
+
+    /*
+        Walks the slots from the top of the table down. Removing through the iterator shifts later members of the probe
+        run back into the hole, and going downwards means those come from slots already visited, so nothing is seen
+        twice. The exception is a probe run that wraps around the end of the table: its members from the bottom slots
+        (not visited yet) can land in a visited slot. deleteSlot() hands those to the iterator, which returns them
+        after the last slot.
+     */
+    private class SlotIterator {
+        private int index = capacity;               //slot of the entry returned last
+        private int next;                           //slot of the next entry, -1 once the slots have run out
+        private List<K> wrapped;                    //entries moved past the walk by a removal
+        private int wrappedIndex;
+        private K current;                          //last key returned, null once it's been removed
+        private int expectedModCount = modCount;
+
+        SlotIterator(){
+            next = findNext(capacity);
+        }
+
+        public boolean hasNext() {
+            return next != -1 || (wrapped != null && wrappedIndex < wrapped.size());
+        }
+
+        //returns the slot of the next entry, or -1 if the next entry is one of the wrapped ones
+        int nextSlot(){
+            if(modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if(!hasNext())
+                throw new NoSuchElementException();
+
+            if(next != -1){
+                index = next;
+                next = findNext(index);
+                current = keys[index];
+                return index;
+            }
+
+            index = -1;
+            current = wrapped.get(wrappedIndex++);
+            return -1;
+        }
+
+        K nextKey(){
+            nextSlot();
+            return current;
+        }
+
+        V nextValue(){
+            int slot = nextSlot();
+            return slot != -1 ? values[slot] : get(current);
+        }
+
+        Map.Entry<K, V> nextEntry(){
+            int slot = nextSlot();
+            return new OpenEntry(current, slot != -1 ? values[slot] : get(current));
+        }
+
+        public void remove() {
+            if(current == null)
+                throw new IllegalStateException();
+            if(modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+
+            //once the slots have run out, every slot has been visited and a shift can't hide anything anymore
+            if(index != -1){
+                deleteSlot(index, this);
+                next = findNext(index);         //the shift may have moved the entry that was up next
+            }
+            else
+                deleteSlot(indexOf(current), null);
+            items--;
+            modCount++;
+
+            expectedModCount = modCount;
+            current = null;
+        }
+
+        //called by deleteSlot() when the key from slot from is moved into slot to
+        void moved(int from, int to){
+            if(from < index && to >= index){
+                if(wrapped == null)
+                    wrapped = new ArrayList<>();
+                wrapped.add(keys[to]);
+            }
+        }
+
+        private int findNext(int slot){
+            for(int i = slot - 1; i >= 0; i--){
+                if(keys[i] != null)
+                    return i;
+            }
+            return -1;
+        }
+    }
+
+    private class KeySet extends AbstractSet<K> {
+        @Override
+        public Iterator<K> iterator() {
+            return new Iterator<K>() {
+                private final SlotIterator slots = new SlotIterator();
+
+                @Override
+                public boolean hasNext() { return slots.hasNext(); }
+
+                @Override
+                public K next() { return slots.nextKey(); }
+
+                @Override
+                public void remove() { slots.remove(); }
+            };
+        }
+
+        @Override
+        public int size() { return items; }
+
+        @Override
+        public boolean contains(Object o) { return containsKey(o); }
+
+        @Override
+        public boolean remove(Object o) {
+            int before = items;
+            OpenHashMap.this.remove(o);
+            return items != before;
+        }
+
+        @Override
+        public void clear() { OpenHashMap.this.clear(); }
+    }
+
+    private class Values extends AbstractCollection<V> {
+        @Override
+        public Iterator<V> iterator() {
+            return new Iterator<V>() {
+                private final SlotIterator slots = new SlotIterator();
+
+                @Override
+                public boolean hasNext() { return slots.hasNext(); }
+
+                @Override
+                public V next() { return slots.nextValue(); }
+
+                @Override
+                public void remove() { slots.remove(); }
+            };
+        }
+
+        @Override
+        public int size() { return items; }
+
+        @Override
+        public boolean contains(Object o) { return containsValue(o); }
+
+        @Override
+        public void clear() { OpenHashMap.this.clear(); }
+    }
+
+    private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new Iterator<Map.Entry<K, V>>() {
+                private final SlotIterator slots = new SlotIterator();
+
+                @Override
+                public boolean hasNext() { return slots.hasNext(); }
+
+                @Override
+                public Map.Entry<K, V> next() { return slots.nextEntry(); }
+
+                @Override
+                public void remove() { slots.remove(); }
+            };
+        }
+
+        @Override
+        public int size() { return items; }
+
+        @Override
+        public boolean contains(Object o) {
+            if(!(o instanceof Map.Entry))
+                return false;
+
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            if(entry.getKey() == null)
+                return false;
+
+            int i = indexOf(entry.getKey());
+            return i != -1 && (values[i] == null ? entry.getValue() == null : values[i].equals(entry.getValue()));
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if(!contains(o))
+                return false;
+
+            OpenHashMap.this.remove(((Map.Entry<?, ?>) o).getKey());
+            return true;
+        }
+
+        @Override
+        public void clear() { OpenHashMap.this.clear(); }
+    }
+
+    //returns the slot holding the key, or -1 if the key isn't present
+    private int indexOf(Object key){
+        if(key == null)
+            throw new NullPointerException();
+
+        int i = spread(key.hashCode()) & mask;
+
+        while(keys[i] != null){
+            if(key.equals(keys[i]))
+                return i;
+            i = (i + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    //empties slot i and shifts later members of the same probe run back so no lookup gets cut short...an iterator
+    //removing slot i is told about every move, see SlotIterator
+    private void deleteSlot(int i, SlotIterator iterator){
+        int hole = i;
+        int j = (i + 1) & mask;
+
+        while(keys[j] != null){
+            int home = spread(keys[j].hashCode()) & mask;
+
+            //the entry at j can fill the hole only if its home slot isn't cyclically between the hole and j
+            if(((j - home) & mask) >= ((j - hole) & mask)){
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                if(iterator != null)
+                    iterator.moved(j, hole);
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+
+        keys[hole] = null;
+        values[hole] = null;
+    }
+
+    private void rehash(int newCapacity){
+        if(capacity == MAX_CAPACITY)
+            throw new IllegalStateException("Map is full: " + items + " entries");
+
+        K[] oldKeys = keys;         //store pre-rehashing state of the table
+        V[] oldValues = values;
+
+        allocate(newCapacity);
+        modCount++;
+
+        //re-insert every entry...no equals() checks are needed since every key is already unique
+        for(int j=0; j<oldKeys.length; j++){
+            if(oldKeys[j] != null){
+                int i = spread(oldKeys[j].hashCode()) & mask;
+                while(keys[i] != null)
+                    i = (i + 1) & mask;
+
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(int newCapacity){
+        capacity = newCapacity;
+        mask = newCapacity - 1;
+        keys = (K[]) new Object[newCapacity];
+        values = (V[]) new Object[newCapacity];
+    }
+
+    //mixes the high bits of the hash into the low bits, since only the low bits are used to pick a slot
+    static int spread(int h){
+        return h ^ (h >>> 16);
+    }
+
+    //smallest power of two that is at least n (and at least 2, so a probe run always finds an empty slot)
+    static int tableSizeFor(int n){
+        if(n >= MAX_CAPACITY)
+            return MAX_CAPACITY;
+        int size = 2;
+        while(size < n)
+            size <<= 1;
+        return size;
+    }
+}
@@ -1,59 +1,182 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
-public class PriorityQueue<T extends Comparable<T>> implements Queue<T>, Iterable<T> {
+public class PriorityQueue<T> implements Queue<T>, Iterable<T> {
 
     private ArrayList<T> heapList;      //heap implementation of PriorityQueue
-    private boolean reverse;            //if true, then heap is MaxOnTop
     private int size;
+    private int modCount;               //structural changes, so that iterators can fail fast
 
-    //Constructors
+    //the element that compares smallest is on top...a MaxOnTop heap just gets the reversed comparator, so the
+    //direction is decided once here instead of being re-checked on every comparison during a sift
+    private Comparator<? super T> order;
+
+    //number of children per node...the children of i are arity*i + 1 through arity*i + arity
+    //a wider heap is shallower, so a sift crosses fewer levels, and the children it compares sit next to each other
+    //in the backing array, so each level costs about one cache miss...4 is usually the sweet spot for large queues
+    private int arity;
+
+    //Constructors...the ones taking maxOnTop need elements that are Comparable
     public PriorityQueue(){
-        heapList = new ArrayList<>();
-        reverse = false;
-        size = 0;
+        this(false);
     }
 
     public PriorityQueue(boolean maxOnTop){
+        this(naturalOrder(maxOnTop));
+    }
+
+    public PriorityQueue(boolean maxOnTop, ArrayList<T> arr){
+        this(maxOnTop, arr, 2);
+    }
+
+    //arity is the number of children per node, ex. 4 or 8 for a d-ary heap
+    public PriorityQueue(boolean maxOnTop, int arity){
+        this(naturalOrder(maxOnTop), arity);
+    }
+
+    public PriorityQueue(boolean maxOnTop, ArrayList<T> arr, int arity){
+        this(naturalOrder(maxOnTop), arr, arity);
+    }
+
+    //the element that compares smallest is on top...pass order.reversed() for the largest
+    public PriorityQueue(Comparator<? super T> order){
+        this(order, 2);
+    }
+
+    public PriorityQueue(Comparator<? super T> order, int arity){
+        if(order == null)
+            throw new NullPointerException();
+
         heapList = new ArrayList<>();
-        reverse = maxOnTop;
+        this.order = order;
         size = 0;
+        this.arity = checkArity(arity);
     }
 
-    public PriorityQueue(boolean maxOnTop, ArrayList<T> arr){
+    public PriorityQueue(Comparator<? super T> order, ArrayList<T> arr){
+        this(order, arr, 2);
+    }
+
+    public PriorityQueue(Comparator<? super T> order, ArrayList<T> arr, int arity){
+        if(order == null)
+            throw new NullPointerException();
+
         heapList = new ArrayList<>(arr);
-        reverse = maxOnTop;
+        this.order = order;
         size = arr.size();
+        this.arity = checkArity(arity);
 
         buildHeap();
     }
 
 
-    //Iterator Implementation
+    //Iterator Implementation...the elements come out in priority order, same as orderedIterator()
     @Override
     public Iterator<T> iterator() {
-        return new PriorityQueueIterator<T>(reverse, heapList);
+        return new OrderedIterator();
+    }
+
+    //walks the backing list as is, so it's O(n) and the elements come out in heap order: the top comes first, the
+    //rest in no particular order...for when every element has to be visited but the order doesn't matter
+    public Iterator<T> unorderedIterator() {
+        return new Iterator<T>() {
+            private int index = 0;
+            private final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() { return index < size; }
+
+            @Override
+            public T next() {
+                if(modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                if(!hasNext())
+                    throw new NoSuchElementException();
+                return heapList.get(index++);
+            }
+        };
+    }
+
+    //returns the elements in priority order without touching the heap...a small heap of indices into heapList holds
+    //the "frontier": the top goes in first, and every index that comes out lets its children in. Reading the first k
+    //elements costs O(k log k) and the frontier never holds more than about k*arity indices, so peeking at the top few
+    //elements of a huge queue is cheap...reading everything is O(n log n), same as a copy-and-pop but without the copy
+    public Iterator<T> orderedIterator() {
+        return new OrderedIterator();
     }
 
-    static class PriorityQueueIterator<T extends Comparable<T>> implements Iterator<T>{
+    private class OrderedIterator implements Iterator<T> {
 
-        private PriorityQueue<T> pQueue;
+        private int[] frontier = new int[arity + 1];       //binary heap of indices, ordered by their elements
+        private int frontierSize;
+        private final int expectedModCount = modCount;
 
-        public PriorityQueueIterator(boolean reverse, ArrayList<T> heapList){
-            pQueue = new PriorityQueue<T>(reverse, heapList);
+        OrderedIterator(){
+            if(size != 0)
+                frontier[frontierSize++] = 0;
         }
 
         @Override
-        public boolean hasNext() {
-            return pQueue.size() != 0;
-        }
+        public boolean hasNext() { return frontierSize != 0; }
 
         @Override
         public T next() {
+            if(modCount != expectedModCount)
+                throw new ConcurrentModificationException();
             if(!hasNext())
                 throw new NoSuchElementException();
-            return pQueue.remove();
+
+            int index = frontier[0];
+            int last = frontier[--frontierSize];
+            if(frontierSize != 0)
+                siftDownIndex(last);
+
+            //heap property...the children of index can't come out before it, and now they're next in line
+            int lastChild = (int) Math.min((long) arity*index + arity + 1, size);
+            for(int child = arity*index + 1; child < lastChild; child++)
+                pushIndex(child);
+
+            return heapList.get(index);
+        }
+
+        private void pushIndex(int index){
+            if(frontierSize == frontier.length)
+                frontier = Arrays.copyOf(frontier, frontierSize * 2);
+
+            T element = heapList.get(index);
+            int i = frontierSize++;
+            while(i > 0){
+                int parent = (i-1) / 2;
+                if(!before(element, heapList.get(frontier[parent])))
+                    break;
+
+                frontier[i] = frontier[parent];
+                i = parent;
+            }
+            frontier[i] = index;
+        }
+
+        private void siftDownIndex(int index){
+            T element = heapList.get(index);
+            int i = 0;
+            while(true){
+                int child = 2*i + 1;
+                if(child >= frontierSize)
+                    break;
+                if(child + 1 < frontierSize && before(heapList.get(frontier[child + 1]), heapList.get(frontier[child])))
+                    child++;
+                if(!before(heapList.get(frontier[child]), element))
+                    break;
+
+                frontier[i] = frontier[child];
+                i = child;
+            }
+            frontier[i] = index;
         }
     }
 
@@ -62,19 +185,59 @@ public class PriorityQueue<T extends Comparable<T>> implements Queue<T>, Iterabl
     public void add(T element) {
         heapList.add(element);
         size++;
+        modCount++;
 
         if(size != 1){
             siftUp(size-1);
         }
     }
 
-    //removes all elements from the heapList in constant time
+    //when the batch is at least as big as the heap, appending everything and rebuilding the heap bottom-up is O(n)
+    //instead of O(k log n)...smaller batches are sifted in one at a time
     @Override
-    public void clear() {
-        for(T element : heapList){
-            heapList.remove(element);
-            size--;
+    public void addAll(Collection<? extends T> c){
+        if(c.size() < size){
+            for(T element : c)
+                add(element);
+            return;
         }
+
+        heapList.addAll(c);
+        size = heapList.size();
+        modCount++;
+        buildHeap();
+    }
+
+    //taking every element out is a sort of the backing list, which beats popping them off the heap one by one
+    @Override
+    public int drainTo(Collection<? super T> c, int maxElements){
+        if(c == this)
+            throw new IllegalArgumentException("Can't drain a queue into itself");
+        if(maxElements <= 0 || size == 0)
+            return 0;
+
+        if(maxElements < size){
+            for(int i=0; i<maxElements; i++)
+                c.add(remove());
+            return maxElements;
+        }
+
+        int moved = size;
+        heapList.sort(order);
+        c.addAll(heapList);
+
+        heapList.clear();
+        size = 0;
+        modCount++;
+        return moved;
+    }
+
+    //removes all elements in constant time...the old list is dropped instead of being emptied slot by slot
+    @Override
+    public void clear() {
+        heapList = new ArrayList<>();
+        size = 0;
+        modCount++;
     }
 
     //traverses through heapList to check if element is in PQueue
@@ -117,6 +280,7 @@ public class PriorityQueue<T extends Comparable<T>> implements Queue<T>, Iterabl
         heapList.set(0, heapList.get(size-1));  //deletion
         heapList.remove(size-1);
         size--;
+        modCount++;
 
         if(size == 0)
             return toReturn;
@@ -140,25 +304,13 @@ public class PriorityQueue<T extends Comparable<T>> implements Queue<T>, Iterabl
                     heapList.remove(size-1);
                     size--;
 
-                    T node = heapList.get(i);
-
-                    //check whether item is greater than its children or less than its parent
-                    //if so...adjust heapList accordingly
-                    if(reverse){
-                        if((2*i + 1 < size && node.compareTo(heapList.get(2*i + 1)) < 0) || (2*i + 2 < size && node.compareTo(heapList.get(2*i + 2)) < 0))
-                            siftDown(i);
-
-                        else if(i != 0 && node.compareTo(heapList.get((i-1) / 2)) > 0)
-                            siftUp(i);
-                    }
-                    else {
-                        if((2*i + 1 < size && node.compareTo(heapList.get(2*i + 1)) > 0) || (2*i + 2 < size && node.compareTo(heapList.get(2*i + 2)) > 0))
-                            siftDown(i);
-
-                        else if(i != 0 && node.compareTo(heapList.get((i-1) / 2)) < 0)
-                            siftUp(i);
-                    }
+                    //the last element took its place...it may belong above its new parent or below its new children
+                    if(i != 0 && before(heapList.get(i), heapList.get((i-1) / arity)))
+                        siftUp(i);
+                    else
+                        siftDown(i);
                 }
+                modCount++;
                 return true;
             }
         }
@@ -171,71 +323,84 @@ public class PriorityQueue<T extends Comparable<T>> implements Queue<T>, Iterabl
         return size;
     }
 
+    //lists the elements in heap order (the top comes first, the rest in no particular order)
     public String toString(){
-        String toReturn = "[";
-        int counter = 0;
-
-        Iterator<T> iterator = iterator();
-        while(counter < (size-1)){
-            toReturn += iterator.next() + ", ";
-            counter++;
-        }
-
-        toReturn += iterator.next() + "]";
-        return toReturn;
+        return heapList.toString();
     }
 
+    //both sifts move a "hole" instead of swapping...the element being sifted is held aside, every element it passes
+    //is moved into the hole once, and the element is written a single time at the end
     private void siftUp(int index){
         T toSift = heapList.get(index);    //store the value we're sifting up
 
-        int i = index;           //keep track of indices of current node and its parent
-        int parent = (i-1)/2;
-
+        int i = index;
         while(i > 0){
-            int compareValue = toSift.compareTo(heapList.get(parent));
+            int parent = (i-1) / arity;
+            T parentElement = heapList.get(parent);
 
             //if less than parent, siftUp...vice versa if maxOnTop
-            if((compareValue > 0 && reverse) || (compareValue < 0 && !reverse)){
-                heapList.set(i, heapList.get(parent));  //swap elements
-                heapList.set(parent, toSift);
-
-                i = parent;         //change indices
-                parent = (i-1)/2;
-            }
-            else
+            if(!before(toSift, parentElement))
                 break;
+
+            heapList.set(i, parentElement);     //parent moves down into the hole
+            i = parent;
         }
+
+        heapList.set(i, toSift);
     }
 
-    private void siftDown(int index){       //similar to the siftUp() method above...however we are comparing with two children which requires a couple more if statements
+    private void siftDown(int index){       //the hole moves down to whichever child belongs on top, until toSift fits in it
         T toSift = heapList.get(index);
 
-        int parent = index;
-        int child = 2*parent + 1;
+        int i = index;
+        while(true){
+            int firstChild = arity*i + 1;
+            if(firstChild >= size)
+                break;
 
-        while(child < size){
+            //one comparison per remaining child to find the one that belongs on top
+            int lastChild = Math.min(firstChild + arity, size);
+            int best = firstChild;
+            T bestElement = heapList.get(firstChild);
 
-            //decides which child is the smallest
-            if(child + 1 < size && ((heapList.get(child).compareTo(heapList.get(child+1)) < 0 && reverse) || (heapList.get(child).compareTo(heapList.get(child+1)) > 0 && !reverse))){
-                child++;
+            for(int child = firstChild + 1; child < lastChild; child++){
+                T childElement = heapList.get(child);
+                if(before(childElement, bestElement)){
+                    best = child;
+                    bestElement = childElement;
+                }
             }
 
-            //if conditions are met, no swapping occurs...otherwise, swapping occurs below this if statement
-            if((toSift.compareTo(heapList.get(child)) > 0 && reverse) || (toSift.compareTo(heapList.get(child)) < 0 && !reverse))
+            if(!before(bestElement, toSift))
                 break;
 
-            heapList.set(parent, heapList.get(child));
-            heapList.set(child, toSift);
-
-            parent = child;
-            child = 2*parent + 1;
+            heapList.set(i, bestElement);       //child moves up into the hole
+            i = best;
         }
+
+        heapList.set(i, toSift);
+    }
+
+    //true if a belongs strictly closer to the top of the heap than b
+    private boolean before(T a, T b){
+        return order.compare(a, b) < 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Comparator<? super T> naturalOrder(boolean maxOnTop){
+        return (Comparator<? super T>) (maxOnTop ? Comparator.reverseOrder() : Comparator.naturalOrder());
+    }
+
+    private static int checkArity(int arity){
+        if(arity < 2)
+            throw new IllegalArgumentException("Illegal arity: " + arity);
+        return arity;
     }
 
     //takes an unordered arrayList and forms a heap
     private void buildHeap(){
         if(size != 0){
-            for(int i = (size-1)/2; i>=0; i--){
+            for(int i = (size-2)/arity; i>=0; i--){      //the last element's parent is the last node with children
                 siftDown(i);
             }
         }
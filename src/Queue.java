@@ -1,8 +1,10 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 public interface Queue<T> {
     void add(T data);
 
-    //put a toAdd(Collection<T> c) here eventually
-
     void clear();
 
     boolean contains(T element);
@@ -22,4 +24,37 @@ public interface Queue<T> {
     int size();
 
     String toString();
+
+    //the batch methods below are built on add() and poll()...implementations that can move a whole batch in one
+    //step override them, and for the concurrent queues a batch still costs one poll() per element
+
+    //adds every element of the collection, in the collection's iteration order
+    default void addAll(Collection<? extends T> c){
+        for(T element : c)
+            add(element);
+    }
+
+    //moves up to maxElements elements from the front of the queue into the collection...returns how many were moved
+    default int drainTo(Collection<? super T> c, int maxElements){
+        if(c == this)
+            throw new IllegalArgumentException("Can't drain a queue into itself");
+
+        int moved = 0;
+        while(moved < maxElements && !isEmpty()){
+            T element = poll();
+            if(element == null)         //another thread emptied the queue after the isEmpty() check
+                break;
+
+            c.add(element);
+            moved++;
+        }
+        return moved;
+    }
+
+    //removes and returns up to maxElements elements from the front of the queue...an empty list if there are none
+    default List<T> pollBatch(int maxElements){
+        List<T> batch = new ArrayList<>();
+        drainTo(batch, maxElements);
+        return batch;
+    }
 }
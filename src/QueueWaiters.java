@@ -0,0 +1,81 @@
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/*
+    Parks the threads of a lock-free queue that have to wait, ex. consumers waiting for an element. The queue itself
+    never takes this lock, and the other side only locks it to wake somebody up when a thread is actually waiting, so
+    with no waiters signal() costs a single volatile read.
+
+    The attempt is always made without holding the lock, since it may signal the queue's other QueueWaiters (a
+    successful poll() wakes a producer waiting for space) and holding both locks at once could deadlock.
+
+    No wakeup can be lost. A waiter registers in waiting and reads generation before every attempt. The other side
+    changes the queue before it reads waiting (with a full fence in between, since the queues publish with lazySet,
+    which on its own lets the read of waiting move ahead of the change), and bumps generation under the lock before
+    it signals. So either the
+    attempt sees the change, or the waiter finds generation moved on once it has the lock, or it is already parked
+    when the signal arrives.
+ */
+
+class QueueWaiters {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private volatile int generation;            //only changed while holding lock
+
+    //retries attempt until it returns something other than null, waiting for a signal() between tries...a negative
+    //timeout waits forever, otherwise null is returned once the timeout runs out
+    <R> R await(Supplier<R> attempt, long timeoutNanos) throws InterruptedException {
+        R result = attempt.get();
+        if(result != null || timeoutNanos == 0)
+            return result;
+
+        long deadline = System.nanoTime() + timeoutNanos;
+        waiting.incrementAndGet();
+        try {
+            while(true){
+                int seen = generation;
+                if((result = attempt.get()) != null)
+                    return result;
+
+                lock.lockInterruptibly();
+                try {
+                    if(generation != seen)          //signalled while we were trying...try again right away
+                        continue;
+
+                    if(timeoutNanos < 0)
+                        changed.await();
+                    else {
+                        long remaining = deadline - System.nanoTime();
+                        if(remaining <= 0)
+                            return null;
+                        changed.awaitNanos(remaining);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    //wakes one waiting thread, if there is one
+    void signal(){
+        VarHandle.fullFence();
+        if(waiting.get() == 0)
+            return;
+
+        lock.lock();
+        try {
+            generation++;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,331 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+    A thread-safe priority queue that gives up exact ordering for throughput (a MultiQueue, from Rihani, Sanders and
+    Dementiev). Instead of one heap behind one lock, it has many stripes, each an ordinary PriorityQueue behind its own
+    lock, and threads spread out over them at random so they rarely want the same lock.
+
+    - add() puts the element into a random stripe, skipping stripes whose lock is taken right now.
+    - poll() picks two random stripes and takes the top of whichever has the better one. The tops are kept in
+      volatile fields, so the two are compared without locking anything.
+
+    So poll() doesn't always return the top of the whole queue, but one from near it: on average the element returned
+    is about as many ranks from the real top as there are stripes, and no element is passed over for long. When the
+    order has to be exact, use ConcurrentPriorityQueue instead.
+
+    poll() only returns null after it has held every stripe's lock at once and found them all empty. take() and the
+    timed poll() park on a QueueWaiters when the queue is empty. Adding never blocks, since the queue has no bound.
+    Elements can't be null.
+ */
+
+public class RelaxedPriorityQueue<T> implements BlockingQueue<T>, Iterable<T> {
+
+    private static class Stripe<T> {
+        final ReentrantLock lock = new ReentrantLock();
+        final PriorityQueue<T> heap;
+        volatile T top;                 //the heap's top, or null if it's empty...only written while holding lock
+        volatile int size;
+
+        Stripe(Comparator<? super T> order){
+            heap = new PriorityQueue<>(order);
+        }
+
+        //call while holding lock, after every change to heap
+        void changed(){
+            size = heap.size();
+            top = heap.isEmpty() ? null : heap.peek();
+        }
+    }
+
+    private final Stripe<T>[] stripes;
+    private final Comparator<? super T> order;          //the element that compares smallest is on top
+    private final QueueWaiters notEmpty = new QueueWaiters();
+
+    //elements have to be Comparable, the smallest is on top
+    public RelaxedPriorityQueue(){
+        this(false);
+    }
+
+    //elements have to be Comparable...if maxOnTop, the largest is on top
+    @SuppressWarnings("unchecked")
+    public RelaxedPriorityQueue(boolean maxOnTop){
+        this((Comparator<? super T>) (maxOnTop ? Comparator.reverseOrder() : Comparator.naturalOrder()));
+    }
+
+    //two stripes per processor
+    public RelaxedPriorityQueue(Comparator<? super T> order){
+        this(order, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    //more stripes means less contention but a looser order
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public RelaxedPriorityQueue(Comparator<? super T> order, int stripeCount){
+        if(order == null)
+            throw new NullPointerException();
+        if(stripeCount < 1)
+            throw new IllegalArgumentException("Illegal stripe count: " + stripeCount);
+
+        this.order = order;
+        stripes = (Stripe<T>[]) new Stripe[stripeCount];
+        for(int i=0; i<stripeCount; i++)
+            stripes[i] = new Stripe<>(order);
+    }
+
+    @Override
+    public void add(T data){
+        offer(data);
+    }
+
+    //always succeeds, since the queue is unbounded
+    @Override
+    public boolean offer(T data){
+        if(data == null)
+            throw new NullPointerException();
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Stripe<T> stripe = stripes[random.nextInt(stripes.length)];
+
+        //a few tries at a stripe nobody is using, then just wait for the last one
+        for(int tries = 1; !stripe.lock.tryLock(); tries++){
+            if(tries == stripes.length){
+                stripe.lock.lock();
+                break;
+            }
+            stripe = stripes[random.nextInt(stripes.length)];
+        }
+
+        try {
+            stripe.heap.add(data);
+            stripe.changed();
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        notEmpty.signal();
+        return true;
+    }
+
+    @Override
+    public boolean offer(T data, long timeout, TimeUnit unit){
+        return offer(data);
+    }
+
+    @Override
+    public void put(T data){
+        offer(data);
+    }
+
+    //removes and returns an element from near the top, or null if the queue is empty
+    @Override
+    public T poll(){
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        for(int tries = 0; tries < stripes.length; tries++){
+            Stripe<T> a = stripes[random.nextInt(stripes.length)];
+            Stripe<T> b = stripes[random.nextInt(stripes.length)];
+            Stripe<T> best = better(a.top, b.top) ? a : b;
+            if(best.top == null)            //both look empty...let the full scan below decide
+                break;
+
+            if(best.lock.tryLock()){
+                try {
+                    if(!best.heap.isEmpty())
+                        return pollLocked(best);
+                } finally {
+                    best.lock.unlock();
+                }
+            }
+        }
+
+        //the random picks kept missing...go through every stripe, starting at a random one
+        int start = random.nextInt(stripes.length);
+        for(int i=0; i<stripes.length; i++){
+            Stripe<T> stripe = stripes[(start + i) % stripes.length];
+            if(stripe.top == null)
+                continue;
+
+            stripe.lock.lock();
+            try {
+                if(!stripe.heap.isEmpty())
+                    return pollLocked(stripe);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+
+        return pollAllLocked();
+    }
+
+    @Override
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return notEmpty.await(this::poll, Math.max(0, unit.toNanos(timeout)));
+    }
+
+    @Override
+    public T take() throws InterruptedException {
+        return notEmpty.await(this::poll, -1);
+    }
+
+    //same as poll, except an empty queue throws an exception
+    @Override
+    public T remove(){
+        T toReturn = poll();
+        if(toReturn == null)
+            throw new NoSuchElementException();
+        return toReturn;
+    }
+
+    @Override
+    public boolean remove(T element){
+        if(element == null)
+            return false;
+
+        for(Stripe<T> stripe : stripes){
+            stripe.lock.lock();
+            try {
+                if(stripe.heap.remove(element)){
+                    stripe.changed();
+                    return true;
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return false;
+    }
+
+    //returns but does not remove the best of the stripes' tops, or null if the queue is empty...unlike poll(),
+    //this one looks at every stripe, so it is the real top as long as no other thread is changing the queue
+    @Override
+    public T peek(){
+        T toReturn = null;
+        for(Stripe<T> stripe : stripes){
+            T top = stripe.top;
+            if(better(top, toReturn))
+                toReturn = top;
+        }
+        return toReturn;
+    }
+
+    //same as peek, except an empty queue throws an exception
+    @Override
+    public T element(){
+        T toReturn = peek();
+        if(toReturn == null)
+            throw new NoSuchElementException();
+        return toReturn;
+    }
+
+    //empties one stripe at a time...elements added to a stripe that was already cleared stay in the queue
+    @Override
+    public void clear(){
+        for(Stripe<T> stripe : stripes){
+            stripe.lock.lock();
+            try {
+                stripe.heap.clear();
+                stripe.changed();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public boolean contains(T element){
+        if(element == null)
+            return false;
+
+        for(Stripe<T> stripe : stripes){
+            stripe.lock.lock();
+            try {
+                if(stripe.heap.contains(element))
+                    return true;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isEmpty(){ return peek() == null; }
+
+    //adds up the stripes' sizes without locking them...only a snapshot while other threads are adding or removing
+    @Override
+    public int size(){
+        long count = 0;
+        for(Stripe<T> stripe : stripes)
+            count += stripe.size;
+        return (int) Math.min(count, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int remainingCapacity(){ return Integer.MAX_VALUE; }
+
+    //iterates over a copy of the stripes taken one stripe at a time, so the elements come out in no particular order
+    //and changes made while iterating aren't seen
+    @Override
+    public Iterator<T> iterator(){
+        return snapshot().iterator();
+    }
+
+    @Override
+    public String toString(){
+        return snapshot().toString();
+    }
+
+    private List<T> snapshot(){
+        List<T> toReturn = new ArrayList<>();
+        for(Stripe<T> stripe : stripes){
+            stripe.lock.lock();
+            try {
+                for(Iterator<T> it = stripe.heap.unorderedIterator(); it.hasNext(); )
+                    toReturn.add(it.next());
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return toReturn;
+    }
+
+    //call while holding the stripe's lock
+    private T pollLocked(Stripe<T> stripe){
+        T toReturn = stripe.heap.poll();
+        stripe.changed();
+        return toReturn;
+    }
+
+    //true if a belongs strictly closer to the top than b...null is an empty stripe, which never does
+    private boolean better(T a, T b){
+        if(a == null)
+            return false;
+        return b == null || order.compare(a, b) < 0;
+    }
+
+    //the slow path of poll()...holds every stripe's lock at once, so that the queue can't change while it looks, and
+    //takes the real top, or returns null if the queue really is empty
+    private T pollAllLocked(){
+        int locked = 0;
+        try {
+            Stripe<T> best = null;
+            for(; locked < stripes.length; locked++){
+                Stripe<T> stripe = stripes[locked];
+                stripe.lock.lock();
+                if(!stripe.heap.isEmpty() && (best == null || better(stripe.heap.peek(), best.heap.peek())))
+                    best = stripe;
+            }
+
+            return best == null ? null : pollLocked(best);
+        } finally {
+            for(int i=0; i<locked; i++)
+                stripes[i].lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+    A bounded queue in a circular array for exactly one producer thread and one consumer thread. With only one thread
+    on each side, no compareAndSet is needed.
+
+    - The producer owns tail and the consumer owns head. Each writes its own counter with lazySet, which is a cheap
+      release store that publishes the slot it just wrote or freed.
+    - Each side also keeps a private copy of the other side's counter. It only re-reads the real one (a cache miss,
+      since the other core keeps writing it) when the copy says the queue is full/empty.
+    - The counters and the private copies are spread PADDING longs apart, so no two of them share a cache line.
+
+    offer()/put() may only be called from the producer thread, and poll()/take()/peek()/clear()/remove(T) only from
+    the consumer thread. Elements can't be null.
+ */
+
+public class SPSCArrayQueue<T> implements BlockingQueue<T> {
+
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final int PADDING = 16;          //longs between two counters...128 bytes, two cache lines
+    private static final int HEAD = PADDING;
+    private static final int TAIL = 2 * PADDING;
+
+    //indices into cached, which is only ever touched by the thread that owns the entry
+    private static final int TAIL_SEEN_BY_CONSUMER = PADDING;
+    private static final int HEAD_SEEN_BY_PRODUCER = 2 * PADDING;
+
+    private final Object[] buffer;
+    private final AtomicLongArray counters;
+    private final long[] cached;
+    private final int mask;
+
+    private final QueueWaiters notEmpty = new QueueWaiters();
+    private final QueueWaiters notFull = new QueueWaiters();
+
+    //the capacity is rounded up to a power of two, and is at least 2
+    public SPSCArrayQueue(int capacity){
+        if(capacity < 1 || capacity > MAX_CAPACITY)
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+
+        int length = OpenHashMap.tableSizeFor(capacity);
+        buffer = new Object[length];
+        counters = new AtomicLongArray(3 * PADDING);
+        cached = new long[3 * PADDING];
+        mask = length - 1;
+    }
+
+    //same as offer, except a full queue throws an exception
+    @Override
+    public void add(T data){
+        if(!offer(data))
+            throw new IllegalStateException("Queue is full");
+    }
+
+    @Override
+    public boolean offer(T data){
+        if(data == null)
+            throw new NullPointerException();
+
+        long tail = counters.get(TAIL);         //only we write it, so this never misses in the cache
+        if(tail - cached[HEAD_SEEN_BY_PRODUCER] == buffer.length){
+            cached[HEAD_SEEN_BY_PRODUCER] = counters.get(HEAD);
+            if(tail - cached[HEAD_SEEN_BY_PRODUCER] == buffer.length)
+                return false;
+        }
+
+        buffer[(int) tail & mask] = data;
+        counters.lazySet(TAIL, tail + 1);
+        notEmpty.signal();
+        return true;
+    }
+
+    @Override
+    public boolean offer(T data, long timeout, TimeUnit unit) throws InterruptedException {
+        return notFull.await(() -> offer(data) ? Boolean.TRUE : null, Math.max(0, unit.toNanos(timeout))) != null;
+    }
+
+    @Override
+    public void put(T data) throws InterruptedException {
+        notFull.await(() -> offer(data) ? Boolean.TRUE : null, -1);
+    }
+
+    //removes and returns the first element, or null if the queue is empty
+    @Override
+    @SuppressWarnings("unchecked")
+    public T poll(){
+        long head = counters.get(HEAD);
+        if(head == cached[TAIL_SEEN_BY_CONSUMER]){
+            cached[TAIL_SEEN_BY_CONSUMER] = counters.get(TAIL);
+            if(head == cached[TAIL_SEEN_BY_CONSUMER])
+                return null;
+        }
+
+        int slot = (int) head & mask;
+        T toReturn = (T) buffer[slot];
+        buffer[slot] = null;
+        counters.lazySet(HEAD, head + 1);
+        notFull.signal();
+        return toReturn;
+    }
+
+    @Override
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return notEmpty.await(this::poll, Math.max(0, unit.toNanos(timeout)));
+    }
+
+    @Override
+    public T take() throws InterruptedException {
+        return notEmpty.await(this::poll, -1);
+    }
+
+    //same as poll, except an empty queue throws an exception
+    @Override
+    public T remove(){
+        T toReturn = poll();
+        if(toReturn == null)
+            throw new NoSuchElementException();
+        return toReturn;
+    }
+
+    //consumer thread only...removes the first occurrence of the element by moving everything in front of it one slot
+    //back and then moving head forward, so the producer, which only ever looks at head, never sees the gap. O(n)
+    @Override
+    public boolean remove(T element){
+        if(element == null)
+            return false;
+
+        long head = counters.get(HEAD);
+        long tail = counters.get(TAIL);
+        for(long pos = head; pos < tail; pos++){
+            if(!element.equals(buffer[(int) pos & mask]))
+                continue;
+
+            for(long j = pos; j > head; j--)
+                buffer[(int) j & mask] = buffer[(int) (j - 1) & mask];
+            buffer[(int) head & mask] = null;
+
+            counters.lazySet(HEAD, head + 1);
+            notFull.signal();
+            return true;
+        }
+        return false;
+    }
+
+    //returns but does not remove the first element, or null if the queue is empty
+    @Override
+    @SuppressWarnings("unchecked")
+    public T peek(){
+        long head = counters.get(HEAD);
+        if(head == counters.get(TAIL))
+            return null;
+        return (T) buffer[(int) head & mask];
+    }
+
+    //same as peek, except an empty queue throws an exception
+    @Override
+    public T element(){
+        T toReturn = peek();
+        if(toReturn == null)
+            throw new NoSuchElementException();
+        return toReturn;
+    }
+
+    @Override
+    public void clear(){
+        while(poll() != null);
+    }
+
+    //only exact when called from the consumer thread
+    @Override
+    public boolean contains(T element){
+        if(element == null)
+            return false;
+
+        long tail = counters.get(TAIL);
+        for(long pos = counters.get(HEAD); pos < tail; pos++){
+            if(element.equals(buffer[(int) pos & mask]))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isEmpty(){ return size() == 0; }
+
+    @Override
+    public int size(){
+        long head = counters.get(HEAD);
+        long tail = counters.get(TAIL);
+        return (int) Math.max(0, Math.min(tail - head, buffer.length));
+    }
+
+    public int capacity(){ return buffer.length; }
+
+    @Override
+    public int remainingCapacity(){ return buffer.length - size(); }
+
+    @Override
+    public String toString(){
+        return "SPSCArrayQueue[size=" + size() + ", capacity=" + buffer.length + "]";
+    }
+}
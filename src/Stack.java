@@ -1,45 +1,61 @@
-import java.util.*;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.EmptyStackException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
+//the elements sit in an array with the bottom of the stack at index 0, so push and pop only ever touch the end of the
+//array and nothing has to be shifted...the array doubles when it fills up
+public class Stack<T> implements Iterable<T> {
 
-//override some of the classes from vector later...
-public class Stack<T> extends Vector<T> implements Iterable<T> {
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
 
-    private ArrayList<T> stack;
+    private Object[] stack;
     private int size;
+    private int modCount;           //bumped on every push/pop so iterators can fail fast
 
     public Stack(){
-        stack = new ArrayList<>();
+        this(16);
+    }
+
+    public Stack(int initialCapacity){
+        if(initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+
+        stack = new Object[Math.max(initialCapacity, 1)];
         size = 0;
     }
 
+    //walks the stack from the top down, reading straight out of the array
     @Override
     public Iterator<T> iterator() {
-        return new StackIterator<T>(stack);
+        return new StackIterator();
     }
 
-    private static class StackIterator<T> implements Iterator<T>{
+    private class StackIterator implements Iterator<T>{
 
-        private ArrayList<T> stack;
         private int index;
+        private int expectedModCount;
 
-        public StackIterator(ArrayList<T> s){
-            stack = new ArrayList<T>(s);
-            index = 0;
+        public StackIterator(){
+            index = size - 1;
+            expectedModCount = modCount;
         }
 
         @Override
         public boolean hasNext() {
-            return stack.size() != 0;
+            return index >= 0;
         }
 
         @Override
+        @SuppressWarnings("unchecked")
         public T next() {
-            if(index >= stack.size())
+            if(modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if(index < 0)
                 throw new NoSuchElementException();
 
-            T toReturn = stack.get(index);
-            index++;
-            return toReturn;
+            return (T) stack[index--];
         }
     }
 
@@ -47,53 +63,70 @@ public class Stack<T> extends Vector<T> implements Iterable<T> {
         return size == 0;
     }
 
+    public boolean isEmpty(){ return size == 0; }
+
+    public int size(){ return size; }
+
+    @SuppressWarnings("unchecked")
     public T peek(){
-        return stack.get(0);
+        if(empty())
+            throw new EmptyStackException();
+        return (T) stack[size - 1];
     }
 
+    @SuppressWarnings("unchecked")
     public T pop(){
         if(empty())
             throw new EmptyStackException();
-        T toReturn = stack.remove(0);
-        size--;
+
+        T toReturn = (T) stack[--size];
+        stack[size] = null;         //don't keep the popped element alive
+        modCount++;
         return toReturn;
     }
 
     public boolean push(T element){
-        stack.add(0, element);
-        size++;
+        if(size == stack.length)
+            grow();
+
+        stack[size++] = element;
+        modCount++;
         return true;
     }
 
+    //1-based distance of the element from the top of the stack (the top itself is 1), or -1 if it isn't present
     public int search(T element){
         for(int i=size-1; i>=0; i--){
-            if(stack.get(i).equals(element))
+            if(stack[i].equals(element))
                 return size - i;
         }
 
         return -1;
     }
 
-    @Override
     public void clear(){
-        for(T element : stack){
-            stack.remove(element);
-            size--;
-        }
+        Arrays.fill(stack, 0, size, null);
+        size = 0;
+        modCount++;
     }
 
+    //lists the elements from the top down
     @Override
     public String toString(){
-        String toReturn = "[";
-        int counter = 0;
+        if(size == 0)
+            return "[]";
 
-        Iterator<T> iterator = iterator();
-        while(counter < (size-1)){
-            toReturn += iterator.next() + ", ";
-            counter++;
-        }
+        StringBuilder toReturn = new StringBuilder("[");
+        for(int i=size-1; i>0; i--)
+            toReturn.append(stack[i]).append(", ");
 
-        toReturn += iterator.next() + "]";
-        return toReturn;
+        return toReturn.append(stack[0]).append("]").toString();
+    }
+
+    private void grow(){
+        if(stack.length == MAX_CAPACITY)
+            throw new IllegalStateException("Stack is full");
+
+        stack = Arrays.copyOf(stack, (int) Math.min((long) stack.length << 1, MAX_CAPACITY));
     }
 }
@@ -0,0 +1,396 @@
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/*
+    A linked list where every node holds a small array of elements instead of a single one. Scanning the list then
+    reads whole arrays that sit next to each other in memory instead of chasing one pointer (and taking one cache miss)
+    per element, and the per-element cost of the node objects mostly disappears.
+
+    - Indexed operations skip a whole node at a time using the node's element count, starting from whichever end is closer.
+    - A full node is split in half before an element is inserted into it.
+    - A node that falls below half full after a removal pulls in its successor if they fit together, so nodes
+      stay reasonably dense.
+    - A node's elements don't have to start at 0 of its array. A removal closes the gap from whichever side is
+      shorter, so taking from the front (poll() on a queue) is O(1) instead of shifting the whole head node.
+ */
+
+public class UnrolledLinkedList<T> implements Queue<T>, Iterable<T> {
+
+    private static final int DEFAULT_NODE_CAPACITY = 64;
+
+    private static class Node<T> {
+        private final Object[] elements;
+        private int start;          //the node's elements are elements[start] to elements[start + count - 1]
+        private int count;
+        private Node<T> next;
+        private Node<T> prev;
+
+        public Node(int capacity){
+            elements = new Object[capacity];
+            count = 0;
+        }
+    }
+
+    private final int nodeCapacity;
+    private Node<T> head;
+    private Node<T> tail;
+    private int size;
+    private int modCount;
+
+    private int offset;         //set by findNode()...position of the index inside the node it returned
+
+    public UnrolledLinkedList(){
+        this(DEFAULT_NODE_CAPACITY);
+    }
+
+    //nodeCapacity is the number of elements per node...32 to 64 usually fills a few cache lines nicely
+    public UnrolledLinkedList(int nodeCapacity){
+        if(nodeCapacity < 2)
+            throw new IllegalArgumentException("Illegal node capacity: " + nodeCapacity);
+
+        this.nodeCapacity = nodeCapacity;
+        head = tail = null;
+        size = 0;
+    }
+
+    //appends the element to the end of the list
+    @Override
+    public void add(T data){
+        if(tail == null || tail.count == nodeCapacity)
+            linkAfter(tail, new Node<>(nodeCapacity));
+        else if(tail.start + tail.count == nodeCapacity){
+            //no room at the end...only slide a tail that's at most half full, so a queue that's added to and polled
+            //from in turn doesn't move the whole node back every time
+            if(tail.count > nodeCapacity / 2)
+                linkAfter(tail, new Node<>(nodeCapacity));
+            else
+                compact(tail);
+        }
+
+        tail.elements[tail.start + tail.count++] = data;
+        size++;
+        modCount++;
+    }
+
+    //inserts the element at the specified index...index == size() appends it
+    public void add(int index, T data){
+        isIndexInBounds(index, size);
+
+        if(index == size){
+            add(data);
+            return;
+        }
+
+        Node<T> node = findNode(index);
+        int i = offset;
+
+        if(node.count == nodeCapacity){
+            //split the node, moving its upper half into a new node after it
+            Node<T> upper = new Node<>(nodeCapacity);
+            int half = nodeCapacity / 2;
+
+            System.arraycopy(node.elements, half, upper.elements, 0, nodeCapacity - half);
+            for(int j=half; j<nodeCapacity; j++)
+                node.elements[j] = null;
+
+            upper.count = nodeCapacity - half;
+            node.count = half;
+            linkAfter(node, upper);
+
+            if(i >= half){
+                node = upper;
+                i -= half;
+            }
+        }
+
+        //make room by shifting the elements in front of i down, or the ones from i on up, whichever has space
+        boolean roomAtFront = node.start > 0;
+        boolean roomAtEnd = node.start + node.count < nodeCapacity;
+
+        if(roomAtFront && (!roomAtEnd || i < node.count / 2)){
+            System.arraycopy(node.elements, node.start, node.elements, node.start - 1, i);
+            node.start--;
+        }
+        else
+            System.arraycopy(node.elements, node.start + i, node.elements, node.start + i + 1, node.count - i);
+
+        node.elements[node.start + i] = data;
+        node.count++;
+
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public void clear(){
+        head = tail = null;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public boolean contains(T element){
+        return indexOf(element) != -1;
+    }
+
+    //same as peek, except an empty list throws an exception
+    @Override
+    public T element(){
+        if(size == 0)
+            throw new NoSuchElementException();
+        return peek();
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index){
+        isIndexInBounds(index, size-1);
+
+        Node<T> node = findNode(index);
+        return (T) node.elements[node.start + offset];
+    }
+
+    //returns the first index of the element, or -1 if it isn't present
+    public int indexOf(T element){
+        int index = 0;
+        for(Node<T> node = head; node != null; node = node.next){
+            Object[] elements = node.elements;
+            for(int i=0; i<node.count; i++){
+                if(elements[node.start + i].equals(element))
+                    return index + i;
+            }
+            index += node.count;
+        }
+        return -1;
+    }
+
+    //returns the last index of the element, or -1 if it isn't present
+    public int lastIndexOf(T element){
+        int index = size;
+        for(Node<T> node = tail; node != null; node = node.prev){
+            index -= node.count;
+
+            Object[] elements = node.elements;
+            for(int i=node.count-1; i>=0; i--){
+                if(elements[node.start + i].equals(element))
+                    return index + i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean isEmpty(){ return size == 0; }
+
+    //returns but does not remove the first element, or null if the list is empty
+    @Override
+    @SuppressWarnings("unchecked")
+    public T peek(){
+        return head == null ? null : (T) head.elements[head.start];
+    }
+
+    //returns but does not remove the last element, or null if the list is empty
+    @SuppressWarnings("unchecked")
+    public T peekLast(){
+        return tail == null ? null : (T) tail.elements[tail.start + tail.count - 1];
+    }
+
+    //removes and returns the first element, or null if the list is empty
+    @Override
+    public T poll(){
+        return size == 0 ? null : removeAt(head, 0);
+    }
+
+    //same as poll, except an empty list throws an exception
+    @Override
+    public T remove(){
+        if(size == 0)
+            throw new NoSuchElementException();
+        return removeAt(head, 0);
+    }
+
+    //removes and returns the element at the specified index
+    public T remove(int index){
+        isIndexInBounds(index, size-1);
+
+        Node<T> node = findNode(index);
+        return removeAt(node, offset);
+    }
+
+    //removes the first occurrence of the element...returns true if it was found
+    @Override
+    public boolean remove(T element){
+        for(Node<T> node = head; node != null; node = node.next){
+            for(int i=0; i<node.count; i++){
+                if(node.elements[node.start + i].equals(element)){
+                    removeAt(node, i);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    //replaces the element at the specified index and returns the old one
+    @SuppressWarnings("unchecked")
+    public T set(int index, T data){
+        isIndexInBounds(index, size-1);
+
+        Node<T> node = findNode(index);
+        T oldData = (T) node.elements[node.start + offset];
+        node.elements[node.start + offset] = data;
+        return oldData;
+    }
+
+    @Override
+    public int size(){ return size; }
+
+    @Override
+    public Iterator<T> iterator(){
+        return new UnrolledIterator();
+    }
+
+    //walks the element arrays node by node
+    private class UnrolledIterator implements Iterator<T> {
+        private Node<T> node = head;
+        private int i = 0;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return node != null && i < node.count;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if(modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if(!hasNext())
+                throw new NoSuchElementException();
+
+            T toReturn = (T) node.elements[node.start + i++];
+            if(i == node.count){        //nodes are never left empty, so the next one has at least one element
+                node = node.next;
+                i = 0;
+            }
+            return toReturn;
+        }
+    }
+
+    @Override
+    public String toString(){
+        if(size == 0)
+            return "[]";
+
+        StringBuilder toReturn = new StringBuilder("[");
+        for(T element : this)
+            toReturn.append(element).append(", ");
+
+        toReturn.setLength(toReturn.length() - 2);
+        return toReturn.append("]").toString();
+    }
+
+    //removes element i of the node, then unlinks the node if it emptied or merges it with the next one if it's sparse
+    @SuppressWarnings("unchecked")
+    private T removeAt(Node<T> node, int i){
+        T toReturn = (T) node.elements[node.start + i];
+
+        //close the gap from the shorter side...removing the first element just moves start up
+        if(i < node.count / 2){
+            System.arraycopy(node.elements, node.start, node.elements, node.start + 1, i);
+            node.elements[node.start++] = null;
+        }
+        else {
+            System.arraycopy(node.elements, node.start + i + 1, node.elements, node.start + i, node.count - i - 1);
+            node.elements[node.start + node.count - 1] = null;
+        }
+        node.count--;
+
+        if(node.count == 0)
+            unlink(node);
+        else if(node.count < nodeCapacity / 2 && node.next != null && node.count + node.next.count <= nodeCapacity){
+            Node<T> next = node.next;
+            if(node.start + node.count + next.count > nodeCapacity)
+                compact(node);
+
+            System.arraycopy(next.elements, next.start, node.elements, node.start + node.count, next.count);
+            node.count += next.count;
+            unlink(next);
+        }
+
+        size--;
+        modCount++;
+        return toReturn;
+    }
+
+    //finds the node holding the element at index (which must be in bounds) by skipping over whole nodes, and stores
+    //the element's position inside that node in offset
+    private Node<T> findNode(int index){
+        if(index < size / 2){
+            Node<T> node = head;
+            while(index >= node.count){
+                index -= node.count;
+                node = node.next;
+            }
+            offset = index;
+            return node;
+        }
+
+        Node<T> node = tail;
+        int start = size - node.count;      //index of the node's first element
+        while(index < start){
+            node = node.prev;
+            start -= node.count;
+        }
+        offset = index - start;
+        return node;
+    }
+
+    //moves the node's elements to the front of its array
+    private void compact(Node<T> node){
+        if(node.start == 0)
+            return;
+
+        System.arraycopy(node.elements, node.start, node.elements, 0, node.count);
+        for(int j=Math.max(node.count, node.start); j<node.start + node.count; j++)
+            node.elements[j] = null;
+        node.start = 0;
+    }
+
+    //links a new node after the given one, or as the only node when after is null
+    private void linkAfter(Node<T> after, Node<T> node){
+        node.prev = after;
+
+        if(after == null){
+            node.next = null;
+            head = tail = node;
+            return;
+        }
+
+        node.next = after.next;
+        if(after.next == null)
+            tail = node;
+        else
+            after.next.prev = node;
+        after.next = node;
+    }
+
+    private void unlink(Node<T> node){
+        if(node.prev == null)
+            head = node.next;
+        else
+            node.prev.next = node.next;
+
+        if(node.next == null)
+            tail = node.prev;
+        else
+            node.next.prev = node.prev;
+    }
+
+    //determines if an exception needs to be thrown for a specified index
+    private void isIndexInBounds(int index, int max){
+        if(index < 0 || index > max)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+}
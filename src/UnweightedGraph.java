@@ -144,7 +144,7 @@ public class UnweightedGraph<T> implements Graph<T> {
         GraphNode<T> origin = get(start);
         if(origin == null) return traversal;
 
-        Queue<GraphNode<T>> queue = new LinkedList<>();
+        Queue<GraphNode<T>> queue = new ArrayQueue<>();
 
         traversal.add(origin.data);
         queue.add(origin);
@@ -227,7 +227,7 @@ public class UnweightedGraph<T> implements Graph<T> {
         GraphNode<T> endNode = get(end);
         if(startNode == null || endNode == null) return shortestPath;
 
-        Queue<GraphNode<T>> queue = new LinkedList<>();
+        Queue<GraphNode<T>> queue = new ArrayQueue<>();
 
         traversal.add(startNode);
         queue.add(startNode);
@@ -300,11 +300,13 @@ public class UnweightedGraph<T> implements Graph<T> {
         boolean found = false;
 
         //if edge isn't found, found stays false and the method returns false
-        //otherwise, edge information is changed for both nodes
+        //otherwise, edge information is changed for both nodes...there's at most one edge between two nodes, so
+        //the loops stop as soon as it's removed (the edge iterators don't allow removing while iterating)
         for(GraphEdge<T> edge : temp.edges){
             if(from.equals(edge.location.data) || to.equals(edge.location.data)){
                 temp.edges.remove(edge);
                 found = true;
+                break;
             }
         }
 
@@ -312,6 +314,7 @@ public class UnweightedGraph<T> implements Graph<T> {
             for(GraphEdge<T> edge : temp2.edges){
                 if(from.equals(edge.location.data) || to.equals(edge.location.data)){
                     temp2.edges.remove(edge);
+                    break;
                 }
             }
             numEdges--;
@@ -345,8 +348,10 @@ public class UnweightedGraph<T> implements Graph<T> {
             GraphNode<T> neighbor = edge.location;
 
             for(GraphEdge<T> neighborEdge : neighbor.edges){
-                if(data.equals(neighborEdge.location.data))
+                if(data.equals(neighborEdge.location.data)){
                     neighbor.edges.remove(neighborEdge);
+                    break;
+                }
             }
         }
 